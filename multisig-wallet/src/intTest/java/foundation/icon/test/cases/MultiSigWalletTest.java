@@ -222,8 +222,9 @@ public class MultiSigWalletTest extends TestBase {
         multiSigWalletScore.ensureWalletOwnerRemoval(result, ownerWallet.getAddress());
         multiSigWalletScore.ensureExecution(result, txId);
         multiSigWalletScore.ensureConfirmationCount(txId, 3);
+        // the confirmations are ordered by the slots of the owners, not by the current owners
         multiSigWalletScore.getConfirmationsAndCheck(txId,
-                charlieWallet.getAddress(), aliceWallet.getAddress(), davidWallet.getAddress());
+                aliceWallet.getAddress(), charlieWallet.getAddress(), davidWallet.getAddress());
         multiSigWalletScore.ensureOwners(
                 charlieWallet.getAddress(), aliceWallet.getAddress(), davidWallet.getAddress());
         LOG.infoExiting();
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2020 ICONLOOP Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iconloop.score.example;
+
+/**
+ * Helpers for the little-endian bitsets stored as byte arrays,
+ * where the bit {@code i} is kept in the byte {@code i / 8}.
+ */
+final class Bits {
+    private Bits() {}
+
+    static boolean isSet(byte[] bits, int index) {
+        int i = index >> 3;
+        return bits != null && i < bits.length && (bits[i] & (1 << (index & 7))) != 0;
+    }
+
+    static byte[] set(byte[] bits, int index) {
+        int i = index >> 3;
+        if (bits == null || i >= bits.length) {
+            byte[] tmp = new byte[i + 1];
+            if (bits != null) {
+                System.arraycopy(bits, 0, tmp, 0, bits.length);
+            }
+            bits = tmp;
+        }
+        bits[i] |= (byte) (1 << (index & 7));
+        return bits;
+    }
+
+    static byte[] clear(byte[] bits, int index) {
+        int i = index >> 3;
+        if (bits != null && i < bits.length) {
+            bits[i] &= (byte) ~(1 << (index & 7));
+        }
+        return bits;
+    }
+
+    /**
+     * Returns the bits of {@code bits} that are not set in {@code mask}, or {@code bits} itself if there is none.
+     */
+    static byte[] andNot(byte[] bits, byte[] mask) {
+        if (bits == null || mask == null) {
+            return bits;
+        }
+        byte[] result = null;
+        for (int i = 0; i < bits.length && i < mask.length; i++) {
+            if ((bits[i] & mask[i]) != 0) {
+                if (result == null) {
+                    result = bits.clone();
+                }
+                result[i] &= (byte) ~mask[i];
+            }
+        }
+        return (result == null) ? bits : result;
+    }
+
+    static int count(byte[] bits) {
+        int count = 0;
+        if (bits != null) {
+            for (byte b : bits) {
+                // clear the lowest set bit until nothing is left
+                for (int v = b & 0xff; v != 0; v &= v - 1) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the position of the next set bit at or after {@code from}, or -1 if none.
+     */
+    static int next(byte[] bits, int from) {
+        if (bits == null) {
+            return -1;
+        }
+        int size = bits.length << 3;
+        for (int i = from; i < size; i++) {
+            if ((bits[i >> 3] & (1 << (i & 7))) != 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
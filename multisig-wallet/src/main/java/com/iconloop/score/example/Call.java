@@ -0,0 +1,231 @@
+/*
+ * Copyright 2020 ICONLOOP Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iconloop.score.example;
+
+import score.Address;
+import score.ObjectReader;
+import score.ObjectWriter;
+
+import java.math.BigInteger;
+
+/**
+ * A single external call of a {@link Transaction}.
+ * The params are kept only in the converted form together with their names,
+ * from which {@link #params()} rebuilds the JSON params.
+ */
+public class Call {
+    // type tags of the converted params
+    private static final int TYPE_ADDRESS = 0;
+    private static final int TYPE_STR = 1;
+    private static final int TYPE_INT = 2;
+    private static final int TYPE_BOOL = 3;
+    private static final int TYPE_BYTES = 4;
+    private static final String[] TYPE_NAMES = {"Address", "str", "int", "bool", "bytes"};
+
+    private final Address destination;
+    private final String method;
+    private final BigInteger value;
+    private final String[] paramNames;
+    private final Object[] convertedParams;
+
+    /**
+     * Creates a new call, converting the given JSON params into the call arguments.
+     *
+     * @throws IllegalArgumentException if the params are not valid
+     */
+    public Call(Address destination, String method, String params, BigInteger value) {
+        if (destination == null) {
+            throw new IllegalArgumentException();
+        }
+        this.destination = destination;
+        this.method = method;
+        this.value = value;
+        if (params == null || params.equals("")) {
+            this.paramNames = null;
+            this.convertedParams = null;
+        } else {
+            ParamsParser parser = new ParamsParser(params);
+            this.convertedParams = parser.parseArray();
+            this.paramNames = parser.names();
+        }
+    }
+
+    private Call(Address destination, String method, BigInteger value, String[] paramNames, Object[] convertedParams) {
+        this.destination = destination;
+        this.method = method;
+        this.value = value;
+        this.paramNames = paramNames;
+        this.convertedParams = convertedParams;
+    }
+
+    public static void writeObject(ObjectWriter w, Call c) {
+        w.beginList(4);
+        w.write(c.destination);
+        w.writeNullable(
+                c.method,
+                c.value
+        );
+        writeConvertedParams(w, c.paramNames, c.convertedParams);
+        w.end();
+    }
+
+    public static Call readObject(ObjectReader r) {
+        r.beginList();
+        Address destination = r.readAddress();
+        String method = r.readNullable(String.class);
+        BigInteger value = r.readNullable(BigInteger.class);
+        Call c;
+        if (r.beginNullableList()) {
+            int count = r.readInt();
+            String[] names = new String[count];
+            Object[] params = new Object[count];
+            for (int i = 0; i < count; i++) {
+                names[i] = r.readString();
+                params[i] = readConvertedParam(r);
+            }
+            r.end();
+            c = new Call(destination, method, value, names, params);
+        } else {
+            c = new Call(destination, method, value, null, null);
+        }
+        r.end();
+        return c;
+    }
+
+    private static void writeConvertedParams(ObjectWriter w, String[] names, Object[] params) {
+        if (params == null) {
+            w.writeNull();
+            return;
+        }
+        // the number of params followed by the name, the type tag and the value of each
+        w.beginNullableList(params.length * 3 + 1);
+        w.write(params.length);
+        for (int i = 0; i < params.length; i++) {
+            w.write(names[i]);
+            w.write(getTypeTag(params[i]));
+            w.write(params[i]);
+        }
+        w.end();
+    }
+
+    private static Object readConvertedParam(ObjectReader r) {
+        switch (r.readInt()) {
+            case TYPE_ADDRESS:
+                return r.readAddress();
+            case TYPE_STR:
+                return r.readString();
+            case TYPE_INT:
+                return r.readBigInteger();
+            case TYPE_BOOL:
+                return r.readBoolean();
+            default:
+                return r.readByteArray();
+        }
+    }
+
+    private static int getTypeTag(Object param) {
+        if (param instanceof Address) {
+            return TYPE_ADDRESS;
+        } else if (param instanceof String) {
+            return TYPE_STR;
+        } else if (param instanceof BigInteger) {
+            return TYPE_INT;
+        } else if (param instanceof Boolean) {
+            return TYPE_BOOL;
+        }
+        return TYPE_BYTES;
+    }
+
+    public BigInteger value() {
+        return this.value;
+    }
+
+    public Address destination() {
+        return this.destination;
+    }
+
+    public String method() {
+        return this.method;
+    }
+
+    /**
+     * Returns the JSON params rebuilt from the converted ones, or null if the call has no params.
+     * Integers, booleans and bytes are written in the "0x" prefixed hex form.
+     */
+    public String params() {
+        if (this.convertedParams == null) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < this.convertedParams.length; i++) {
+            Object param = this.convertedParams[i];
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"name\":");
+            appendJsonString(sb, this.paramNames[i]);
+            sb.append(",\"type\":\"").append(TYPE_NAMES[getTypeTag(param)]).append("\",\"value\":");
+            if (param instanceof String) {
+                appendJsonString(sb, (String) param);
+            } else {
+                sb.append('"').append(toParamValue(param)).append('"');
+            }
+            sb.append('}');
+        }
+        return sb.append(']').toString();
+    }
+
+    private static String toParamValue(Object param) {
+        if (param instanceof BigInteger) {
+            return Hex.encode((BigInteger) param);
+        } else if (param instanceof Boolean) {
+            return ((Boolean) param) ? "0x1" : "0x0";
+        } else if (param instanceof byte[]) {
+            return Hex.encode((byte[]) param);
+        }
+        return param.toString();
+    }
+
+    static void appendJsonString(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(c < 0x10 ? "\\u000" : "\\u001").append("0123456789abcdef".charAt(c & 0xf));
+            } else {
+                sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+
+    public Object[] getConvertedParams() {
+        return this.convertedParams;
+    }
+
+    @Override
+    public String toString() {
+        return "Call{" +
+                "destination=" + destination +
+                ", method='" + method + '\'' +
+                ", params='" + params() + '\'' +
+                ", value=" + value +
+                '}';
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2020 ICONLOOP Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iconloop.score.example;
+
+import java.math.BigInteger;
+
+/**
+ * Hex codec that works on the characters directly, without allocating intermediate strings.
+ */
+final class Hex {
+    private static final char[] DIGITS = "0123456789abcdef".toCharArray();
+
+    private Hex() {}
+
+    /**
+     * Decodes the hex characters of {@code s} starting from {@code offset}.
+     * An odd number of characters is treated as if it had a leading zero.
+     *
+     * @throws IllegalArgumentException if a non-hex character is found
+     */
+    static byte[] decode(String s, int offset) {
+        int len = s.length() - offset;
+        byte[] bytes = new byte[(len + 1) / 2];
+        int i = offset;
+        int j = 0;
+        if (len % 2 != 0) {
+            bytes[j++] = (byte) digit(s.charAt(i++));
+        }
+        while (j < bytes.length) {
+            bytes[j++] = (byte) (digit(s.charAt(i)) << 4 | digit(s.charAt(i + 1)));
+            i += 2;
+        }
+        return bytes;
+    }
+
+    /**
+     * Decodes the hex characters of {@code s} starting from {@code offset} as an unsigned integer.
+     *
+     * @throws IllegalArgumentException if there is no character to decode or a non-hex character is found
+     */
+    static BigInteger toBigInteger(String s, int offset) {
+        if (s.length() <= offset) {
+            throw new IllegalArgumentException("Empty hex");
+        }
+        return new BigInteger(1, decode(s, offset));
+    }
+
+    /**
+     * Encodes the given integer as a "0x" prefixed hex string without leading zeros, e.g. "0x0" or "-0x1f".
+     */
+    static String encode(BigInteger value) {
+        int signum = value.signum();
+        if (signum == 0) {
+            return "0x0";
+        }
+        byte[] bytes = (signum < 0 ? value.negate() : value).toByteArray();
+        int start = (signum < 0) ? 3 : 2;
+        char[] chars = new char[start + bytes.length * 2];
+        int i = 0;
+        if (signum < 0) {
+            chars[i++] = '-';
+        }
+        chars[i++] = '0';
+        chars[i++] = 'x';
+        boolean leading = true;
+        for (byte b : bytes) {
+            int hi = (b >> 4) & 0xf;
+            int lo = b & 0xf;
+            if (!leading || hi != 0) {
+                chars[i++] = DIGITS[hi];
+                leading = false;
+            }
+            if (!leading || lo != 0) {
+                chars[i++] = DIGITS[lo];
+                leading = false;
+            }
+        }
+        return new String(chars, 0, i);
+    }
+
+    static String encode(long value) {
+        return encode(BigInteger.valueOf(value));
+    }
+
+    /**
+     * Encodes the given bytes as a "0x" prefixed hex string, e.g. "0x" for the empty bytes.
+     */
+    static String encode(byte[] bytes) {
+        char[] chars = new char[2 + bytes.length * 2];
+        chars[0] = '0';
+        chars[1] = 'x';
+        for (int i = 0; i < bytes.length; i++) {
+            chars[2 + i * 2] = DIGITS[(bytes[i] >> 4) & 0xf];
+            chars[3 + i * 2] = DIGITS[bytes[i] & 0xf];
+        }
+        return new String(chars);
+    }
+
+    static int digit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        } else if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        } else if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        throw new IllegalArgumentException("Invalid hex character");
+    }
+}
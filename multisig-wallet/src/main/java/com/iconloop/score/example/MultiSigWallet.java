@@ -19,6 +19,7 @@ package com.iconloop.score.example;
 import score.Address;
 import score.ArrayDB;
 import score.BranchDB;
+import score.ByteArrayObjectWriter;
 import score.Context;
 import score.DictDB;
 import score.VarDB;
@@ -34,25 +35,97 @@ import java.util.Map;
 
 public class MultiSigWallet
 {
-    private static final int MAX_OWNER_COUNT = 50;
+    private static final int MAX_OWNER_COUNT = 500;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int SIGNATURE_LENGTH = 65;
+    private static final int MAX_CALL_COUNT = 50;
+    private static final int WORD_BITS = 256;
+    // slots are never reused, so this also bounds the number of owners ever added or replaced
+    private static final int MAX_SLOT_COUNT = 4 * WORD_BITS;
+    // the length of the daily limit window, assuming 2 seconds per block
+    private static final long BLOCKS_PER_DAY = 43200;
+    // the number of pending transactions checked for the expiry on every submission
+    private static final int EVICTION_COUNT = 2;
+    private static final int MAX_PRUNE_COUNT = 100;
+
+    // transaction status
+    private static final int STATUS_PENDING = 1;
+    private static final int STATUS_EXECUTED = 2;
+    private static final int STATUS_EXPIRED = 3;
 
     private final ArrayDB<Address> owners = Context.newArrayDB("owners", Address.class);
+    private final DictDB<Address, Integer> ownerIndex = Context.newDictDB("ownerIndex", Integer.class);
+    // every owner gets its own bit position in the confirmation bitsets, which is never reused
+    private final DictDB<Address, Integer> ownerSlots = Context.newDictDB("ownerSlots", Integer.class);
+    private final DictDB<Integer, Address> slotOwners = Context.newDictDB("slotOwners", Address.class);
+    private final VarDB<Integer> slotCount = Context.newVarDB("slotCount", Integer.class);
     private final VarDB<BigInteger> required = Context.newVarDB("required", BigInteger.class);
     private final DictDB<BigInteger, Transaction> transactions = Context.newDictDB("transactions", Transaction.class);
+    // the status of each transaction is kept apart from its immutable payload
+    private final DictDB<BigInteger, Integer> statuses = Context.newDictDB("transactionStatus", Integer.class);
     private final VarDB<BigInteger> transactionCount = Context.newVarDB("transactionCount", BigInteger.class);
-    private final BranchDB<BigInteger, DictDB<Address, Boolean>>
-            confirmations = Context.newBranchDB("confirmations", Boolean.class);
+    // enumerable set of pending transaction ids, its size is the pending transaction count
+    private final ArrayDB<BigInteger> pendingIds = Context.newArrayDB("pendingIds", BigInteger.class);
+    private final DictDB<BigInteger, Integer> pendingIndex = Context.newDictDB("pendingIndex", Integer.class);
+    // executed transaction ids in the order of execution, its size is the executed transaction count
+    private final ArrayDB<BigInteger> executedIds = Context.newArrayDB("executedIds", BigInteger.class);
+    // the confirmation bitset of each transaction, split into the words of WORD_BITS slots
+    private final BranchDB<BigInteger, DictDB<Integer, byte[]>> confirmations = Context.newBranchDB("confirmationWords", byte[].class);
+    private final DictDB<BigInteger, Integer> confirmationCounts = Context.newDictDB("confirmationCount", Integer.class);
+    // the slots of the removed owners, whose confirmations of pending transactions are withdrawn lazily
+    private final DictDB<Integer, byte[]> releasedSlots = Context.newDictDB("releasedSlots", byte[].class);
+    // increased on every removal of a slot or change of a weight,
+    // and kept per transaction once its confirmations catch up with it
+    private final VarDB<Integer> ownerEpoch = Context.newVarDB("ownerEpoch", Integer.class);
+    private final DictDB<BigInteger, Integer> confirmationEpochs = Context.newDictDB("confirmationEpoch", Integer.class);
+    // only used in the weighted mode, where the requirement is the threshold of the confirmed weight
+    private final VarDB<Boolean> weighted = Context.newVarDB("weighted", Boolean.class);
+    private final DictDB<Integer, BigInteger> slotWeights = Context.newDictDB("slotWeights", BigInteger.class);
+    private final VarDB<BigInteger> totalWeight = Context.newVarDB("totalWeight", BigInteger.class);
+    private final DictDB<BigInteger, BigInteger> confirmationWeights = Context.newDictDB("confirmationWeight", BigInteger.class);
+    private final VarDB<BigInteger> signingNonce = Context.newVarDB("signingNonce", BigInteger.class);
+    // the id of the multi-call transaction being executed, which is the only one executeCalls accepts
+    private final VarDB<BigInteger> executingId = Context.newVarDB("executingId", BigInteger.class);
+    // all the transactions below the cursor have been pruned by pruneTransactions
+    private final VarDB<BigInteger> pruneCursor = Context.newVarDB("pruneCursor", BigInteger.class);
+    private final VarDB<byte[]> prunedHash = Context.newVarDB("prunedHash", byte[].class);
+    private final VarDB<BigInteger> dailyLimit = Context.newVarDB("dailyLimit", BigInteger.class);
+    // the amount spent within the daily limit in the window of lastDay
+    private final VarDB<BigInteger> spentToday = Context.newVarDB("spentToday", BigInteger.class);
+    private final VarDB<Long> lastDay = Context.newVarDB("lastDay", Long.class);
+    // the transaction IDs of the submissions with nonces, keyed by the hash of the nonce and the payload
+    private final DictDB<byte[], BigInteger> submissionIds = Context.newDictDB("submissionIds", BigInteger.class);
+    // the last block height at which each transaction can be confirmed, if any
+    private final DictDB<BigInteger, BigInteger> expiries = Context.newDictDB("transactionExpiry", BigInteger.class);
+    private final VarDB<Integer> evictionCursor = Context.newVarDB("evictionCursor", Integer.class);
 
     /**
      * Contract constructor sets initial owners and required number of confirmations.
+     * If {@code _weights} is given, the wallet works in the weighted mode, where each owner has the weight
+     * at the same position, and a transaction is executed once the weight of its confirmations
+     * reaches {@code _required}.
      */
-    public MultiSigWallet(String _walletOwners, BigInteger _required) {
+    public MultiSigWallet(String _walletOwners, BigInteger _required, @Optional String _weights) {
         assert(this.owners != null);
         StringTokenizer st = new StringTokenizer(_walletOwners, ", ");
+        StringTokenizer weights = null;
+        if (_weights != null) {
+            weights = new StringTokenizer(_weights, ", ");
+            this.weighted.set(true);
+        }
         while (st.hasMoreTokens()) {
-            this.owners.add(Address.fromString(st.nextToken()));
+            Address owner = Address.fromString(st.nextToken());
+            checkOwnerDoesNotExist(owner);
+            BigInteger weight = null;
+            if (weights != null) {
+                Context.require(weights.hasMoreTokens());
+                weight = (BigInteger) ParamsParser.convert("int", weights.nextToken());
+                Context.require(weight.signum() > 0);
+            }
+            addOwner(owner, weight);
         }
-        checkRequirement(this.owners.size(), _required);
+        Context.require(weights == null || !weights.hasMoreTokens());
+        checkRequirement(this.owners.size(), this.totalWeight.get(), _required);
         this.required.set(_required);
     }
 
@@ -76,13 +149,23 @@ public class MultiSigWallet
         }
     }
 
+    /**
+     * Adds a new owner. In the weighted mode, the owner has the weight of 1,
+     * which can be changed by {@link #changeWalletOwnerWeight}.
+     */
     @External
     public void addWalletOwner(Address _walletOwner) {
         onlyFromWallet();
         checkOwnerDoesNotExist(_walletOwner);
-        checkRequirement(this.owners.size() + 1, this.required.get());
+        BigInteger weight = null;
+        BigInteger total = null;
+        if (this.weighted.getOrDefault(false)) {
+            weight = BigInteger.ONE;
+            total = this.totalWeight.get().add(weight);
+        }
+        checkRequirement(this.owners.size() + 1, total, this.required.get());
         // now we can add the owner
-        this.owners.add(_walletOwner);
+        addOwner(_walletOwner, weight);
         WalletOwnerAddition(_walletOwner);
     }
 
@@ -90,17 +173,18 @@ public class MultiSigWallet
     public void removeWalletOwner(Address _walletOwner) {
         onlyFromWallet();
         checkOwnerExist(_walletOwner);
-        checkRequirement(this.owners.size() - 1, this.required.get());
-        // get the topmost value
+        BigInteger weight = this.slotWeights.get(this.ownerSlots.get(_walletOwner));
+        BigInteger total = (weight == null) ? null : this.totalWeight.get().subtract(weight);
+        checkRequirement(this.owners.size() - 1, total, this.required.get());
+        // move the topmost value into the slot of the removed owner
+        int index = this.ownerIndex.get(_walletOwner);
         Address top = this.owners.pop();
         if (!top.equals(_walletOwner)) {
-            for (int i = 0; i < this.owners.size(); i++) {
-                if (_walletOwner.equals(this.owners.get(i))) {
-                    this.owners.set(i, top);
-                    break;
-                }
-            }
+            this.owners.set(index, top);
+            this.ownerIndex.set(top, index);
         }
+        this.ownerIndex.set(_walletOwner, null);
+        releaseSlot(_walletOwner);
         WalletOwnerRemoval(_walletOwner);
     }
 
@@ -110,54 +194,285 @@ public class MultiSigWallet
         checkOwnerExist(_walletOwner);
         checkOwnerDoesNotExist(_newWalletOwner);
         // now we can replace the owner
-        for (int i = 0; i < this.owners.size(); i++) {
-            if (_walletOwner.equals(this.owners.get(i))) {
-                this.owners.set(i, _newWalletOwner);
-                break;
-            }
-        }
+        int index = this.ownerIndex.get(_walletOwner);
+        this.owners.set(index, _newWalletOwner);
+        this.ownerIndex.set(_newWalletOwner, index);
+        this.ownerIndex.set(_walletOwner, null);
+        // the new owner takes over the weight of the old one
+        assignSlot(_newWalletOwner, releaseSlot(_walletOwner));
         WalletOwnerRemoval(_walletOwner);
         WalletOwnerAddition(_newWalletOwner);
     }
 
+    /**
+     * Changes the weight of an owner in the weighted mode. The confirmed weights of the pending transactions
+     * that the owner has confirmed are updated lazily, when each of them is touched next.
+     */
+    @External
+    public void changeWalletOwnerWeight(Address _walletOwner, BigInteger _weight) {
+        onlyFromWallet();
+        checkOwnerExist(_walletOwner);
+        Context.require(this.weighted.getOrDefault(false) && _weight.signum() > 0);
+        int slot = this.ownerSlots.get(_walletOwner);
+        BigInteger delta = _weight.subtract(this.slotWeights.get(slot));
+        BigInteger total = this.totalWeight.get().add(delta);
+        checkRequirement(this.owners.size(), total, this.required.get());
+        this.slotWeights.set(slot, _weight);
+        this.totalWeight.set(total);
+        this.ownerEpoch.set(this.ownerEpoch.getOrDefault(0) + 1);
+        WalletOwnerWeightChange(_walletOwner, _weight);
+    }
+
+    /**
+     * Changes the amount of ICX that can be sent without confirmations of other owners
+     * in each window of 43200 blocks. Zero disables it.
+     */
+    @External
+    public void changeDailyLimit(BigInteger _dailyLimit) {
+        onlyFromWallet();
+        Context.require(_dailyLimit.signum() >= 0);
+        this.dailyLimit.set(_dailyLimit);
+        DailyLimitChange(_dailyLimit);
+    }
+
     @External
     public void changeRequirement(BigInteger _required) {
         onlyFromWallet();
-        checkRequirement(this.owners.size(), _required);
+        checkRequirement(this.owners.size(), this.totalWeight.get(), _required);
         this.required.set(_required);
         RequirementChange(_required);
     }
 
+    /**
+     * Deletes the payload and the confirmations of the executed or expired transactions whose IDs are less than
+     * {@code _before}, folding each of them into a rolling hash so that the history remains verifiable.
+     * At most 100 transactions are pruned per call, continuing from where the previous call stopped.
+     * The cursor stops at the first transaction that is still pending, which is pruned by a later call
+     * once it is executed or expires.
+     */
+    @External
+    public void pruneTransactions(BigInteger _before) {
+        onlyFromWallet();
+        BigInteger end = _before.min(this.transactionCount.getOrDefault(BigInteger.ZERO));
+        BigInteger transactionId = this.pruneCursor.getOrDefault(BigInteger.ZERO);
+        byte[] hash = this.prunedHash.get();
+        for (int i = 0; i < MAX_PRUNE_COUNT && transactionId.compareTo(end) < 0; i++) {
+            if (this.statuses.get(transactionId) == STATUS_PENDING && !evictIfExpired(transactionId)) {
+                break;
+            }
+            hash = prune(hash, transactionId);
+            transactionId = transactionId.add(BigInteger.ONE);
+        }
+        this.pruneCursor.set(transactionId);
+        this.prunedHash.set(hash);
+        Pruning(transactionId, hash);
+    }
+
     /**
      * Allows an owner to submit and confirm a transaction.
+     * A plain ICX transfer is executed right away if the value is within the remaining daily limit.
      */
     @External
-    public void submitTransaction(Address _destination,
-                                  @Optional String _method,
-                                  @Optional String _params,
-                                  @Optional BigInteger _value,
-                                  @Optional String _description) {
-        checkOwnerExist(Context.getCaller());
+    public BigInteger submitTransaction(Address _destination,
+                                        @Optional String _method,
+                                        @Optional String _params,
+                                        @Optional BigInteger _value,
+                                        @Optional String _description) {
+        Address sender = Context.getCaller();
+        checkOwnerExist(sender);
+        Context.require(_value == null || _value.signum() >= 0);
+        return submit(sender, newTransaction(_destination, _method, _params, _value, _description));
+    }
+
+    /**
+     * Same as {@link #submitTransaction}, except that the transaction is identified by the given nonce and its payload
+     * other than the description. Submitting the same one again returns the ID of the existing transaction
+     * without adding a new one, so that it is safe to retry.
+     */
+    @External
+    public BigInteger submitTransactionWithNonce(BigInteger _nonce,
+                                                 Address _destination,
+                                                 @Optional String _method,
+                                                 @Optional String _params,
+                                                 @Optional BigInteger _value,
+                                                 @Optional String _description) {
+        Address sender = Context.getCaller();
+        checkOwnerExist(sender);
         Context.require(_value == null || _value.signum() >= 0);
-        BigInteger transactionId = addTransaction(_destination, _method, _params, _value, _description);
+        Transaction transaction = newTransaction(_destination, _method, _params, _value, _description);
+        byte[] key = getSubmissionKey(_nonce, transaction.calls()[0]);
+        BigInteger transactionId = this.submissionIds.get(key);
+        if (transactionId == null) {
+            transactionId = submit(sender, transaction);
+            this.submissionIds.set(key, transactionId);
+        }
+        return transactionId;
+    }
+
+    /**
+     * Same as {@link #submitTransaction}, except that the transaction expires after the given block height.
+     * Once expired, the transaction cannot be confirmed nor executed any more.
+     */
+    @External
+    public BigInteger submitTransactionWithExpiry(BigInteger _expiry,
+                                                  Address _destination,
+                                                  @Optional String _method,
+                                                  @Optional String _params,
+                                                  @Optional BigInteger _value,
+                                                  @Optional String _description) {
+        Address sender = Context.getCaller();
+        checkOwnerExist(sender);
+        Context.require(_value == null || _value.signum() >= 0);
+        Context.require(_expiry.compareTo(BigInteger.valueOf(Context.getBlockHeight())) >= 0);
+        Transaction transaction = newTransaction(_destination, _method, _params, _value, _description);
+        // the expiry is set in advance, which does not matter if the transaction is executed right away
+        this.expiries.set(this.transactionCount.getOrDefault(BigInteger.ZERO), _expiry);
+        return submit(sender, transaction);
+    }
+
+    private BigInteger submit(Address sender, Transaction transaction) {
+        BigInteger transactionId = addTransaction(transaction);
+        addConfirmation(transactionId, this.ownerSlots.get(sender));
+        Confirmation(sender, transactionId);
+        BigInteger value = transaction.value();
+        if (isTransfer(transaction) && !isConfirmed(transactionId) && spendDailyLimit(value)) {
+            if (!runTransaction(transactionId, transaction)) {
+                // give back the allowance, since nothing has been sent
+                this.spentToday.set(this.spentToday.get().subtract(value));
+            }
+        } else {
+            executeTransaction(transactionId);
+        }
+        return transactionId;
+    }
+
+    /**
+     * Allows an owner to submit and confirm a transaction consisting of multiple calls,
+     * which are executed in order and atomically: if any of the calls fails, none of them takes effect.
+     * The i-th call is made of the i-th elements of the given arrays, which must have the same length.
+     */
+    @External
+    public BigInteger submitMultiTransaction(Address[] _destinations,
+                                             String[] _methods,
+                                             String[] _params,
+                                             BigInteger[] _values,
+                                             @Optional String _description) {
+        checkOwnerExist(Context.getCaller());
+        int length = _destinations.length;
+        Context.require(length > 0 && length <= MAX_CALL_COUNT);
+        Context.require(_methods.length == length && _params.length == length && _values.length == length);
+        Call[] calls = new Call[length];
+        for (int i = 0; i < length; i++) {
+            Context.require(_values[i] == null || _values[i].signum() >= 0);
+            calls[i] = newCall(_destinations[i], _methods[i], _params[i], _values[i]);
+        }
+        BigInteger transactionId = addTransaction(new Transaction(calls, _description));
         confirmTransaction(transactionId);
+        return transactionId;
+    }
+
+    /**
+     * Performs the calls of the multi-call transaction being executed.
+     * This can only be called by the wallet itself, so that any failure reverts all the calls made so far.
+     */
+    @External
+    public void executeCalls(BigInteger _transactionId) {
+        onlyFromWallet();
+        Context.require(_transactionId.equals(this.executingId.get()));
+        for (Call call : this.transactions.get(_transactionId).calls()) {
+            Context.call(call.value(), call.destination(), call.method(), call.getConvertedParams());
+        }
+    }
+
+    /**
+     * Allows an owner to submit a transaction together with the confirmations of other owners,
+     * which have been collected off-chain as the signatures of {@link #getSigningHash}.
+     * The transaction is executed right away if the sender and the signers reach the requirement.
+     * Unless in the weighted mode, they cannot be more than the requirement.
+     *
+     * @param _signatures the concatenated 65-byte recoverable secp256k1 signatures
+     */
+    @External
+    public void submitSignedTransaction(byte[] _signatures,
+                                        Address _destination,
+                                        @Optional String _method,
+                                        @Optional String _params,
+                                        @Optional BigInteger _value,
+                                        @Optional String _description) {
+        Address sender = Context.getCaller();
+        checkOwnerExist(sender);
+        Context.require(_value == null || _value.signum() >= 0);
+        Context.require(_signatures.length % SIGNATURE_LENGTH == 0);
+        // the count-based wallet executes only at the exact requirement, which must not be jumped over
+        Context.require(this.weighted.getOrDefault(false)
+                || 1 + _signatures.length / SIGNATURE_LENGTH <= this.required.get().intValue());
+        Transaction transaction = newTransaction(_destination, _method, _params, _value, _description);
+        // signatures can only be used once, since the nonce is a part of the signed message
+        BigInteger nonce = this.signingNonce.getOrDefault(BigInteger.ZERO);
+        byte[] hash = transaction.getSigningHash(Context.getAddress(), nonce);
+        this.signingNonce.set(nonce.add(BigInteger.ONE));
+
+        BigInteger transactionId = addTransaction(transaction);
+        addConfirmation(transactionId, this.ownerSlots.get(sender));
+        Confirmation(sender, transactionId);
+        byte[] signature = new byte[SIGNATURE_LENGTH];
+        for (int i = 0; i < _signatures.length; i += SIGNATURE_LENGTH) {
+            System.arraycopy(_signatures, i, signature, 0, SIGNATURE_LENGTH);
+            Address signer = Context.getAddressFromKey(
+                    Context.recoverKey("ecdsa-secp256k1", hash, signature, false));
+            Integer slot = this.ownerSlots.get(signer);
+            if (slot == null) {
+                Context.revert(100, "Owner not exist");
+            }
+            Context.require(addConfirmation(transactionId, slot));
+            Confirmation(signer, transactionId);
+        }
+        executeTransaction(transactionId);
     }
 
     /**
      * Allows an owner to confirm a transaction.
+     * If the transaction has expired, it is removed from the pending transactions instead.
      */
     @External
     public void confirmTransaction(BigInteger _transactionId) {
         Address sender = Context.getCaller();
         checkOwnerExist(sender);
         checkTransactionExist(_transactionId);
-        checkNotConfirmed(_transactionId, sender);
-        // set confirmation true for the sender
-        this.confirmations.at(_transactionId).set(sender, true);
+        checkNotExecuted(_transactionId);
+        if (evictIfExpired(_transactionId)) {
+            return;
+        }
+        Context.require(addConfirmation(_transactionId, this.ownerSlots.get(sender)));
         Confirmation(sender, _transactionId);
         executeTransaction(_transactionId);
     }
 
+    /**
+     * Allows an owner to confirm multiple transactions at once.
+     * The transactions that cannot be confirmed are reported by {@code ConfirmationFailure} events,
+     * and the ones that fail to execute by {@code ExecutionFailure} events, without reverting the others.
+     */
+    @External
+    public void confirmTransactions(BigInteger[] _transactionIds) {
+        Address sender = Context.getCaller();
+        checkOwnerExist(sender);
+        Integer slot = this.ownerSlots.get(sender);
+        for (BigInteger transactionId : _transactionIds) {
+            Integer status = this.statuses.get(transactionId);
+            if (slot == null || status == null || status != STATUS_PENDING
+                    || evictIfExpired(transactionId) || !addConfirmation(transactionId, slot)) {
+                ConfirmationFailure(sender, transactionId);
+                continue;
+            }
+            Confirmation(sender, transactionId);
+            if (executeTransaction(transactionId)) {
+                // the executed transaction might have removed the sender, or added it again with a new slot
+                slot = this.ownerSlots.get(sender);
+            }
+        }
+    }
+
     /**
      * Allows an owner to revoke a confirmation for a transaction.
      */
@@ -167,15 +482,81 @@ public class MultiSigWallet
         checkOwnerExist(sender);
         checkTransactionExist(_transactionId);
         checkNotExecuted(_transactionId);
-        checkConfirmed(_transactionId, sender);
         // set confirmation false for the sender
-        this.confirmations.at(_transactionId).set(sender, false);
+        Context.require(removeConfirmation(_transactionId, this.ownerSlots.get(sender)));
         Revocation(sender, _transactionId);
     }
 
     /*
      * Read-only methods
      */
+
+    /**
+     * Returns the hash that owners should sign for the next {@link #submitSignedTransaction}.
+     * It is the SHA3-256 hash of the RLP-encoded list of the wallet address, the signing nonce,
+     * and the transaction payload.
+     */
+    @External(readonly=true)
+    public byte[] getSigningHash(Address _destination,
+                                 @Optional String _method,
+                                 @Optional String _params,
+                                 @Optional BigInteger _value,
+                                 @Optional String _description) {
+        Transaction transaction = newTransaction(_destination, _method, _params, _value, _description);
+        return transaction.getSigningHash(Context.getAddress(), this.signingNonce.getOrDefault(BigInteger.ZERO));
+    }
+
+    /**
+     * Returns the cursor of {@link #pruneTransactions} in {@code _cursor},
+     * and the rolling hash of the pruned transactions in {@code _hash}.
+     */
+    @External(readonly=true)
+    public Map<String, Object> getPruningState() {
+        byte[] hash = this.prunedHash.get();
+        return Map.of(
+                "_cursor", Hex.encode(this.pruneCursor.getOrDefault(BigInteger.ZERO)),
+                "_hash", (hash == null) ? new byte[0] : hash
+        );
+    }
+
+    /**
+     * Returns the ID of the transaction submitted by {@link #submitTransactionWithNonce} with the given nonce
+     * and payload, or null if there is none.
+     */
+    @External(readonly=true)
+    public BigInteger getSubmissionId(BigInteger _nonce,
+                                      Address _destination,
+                                      @Optional String _method,
+                                      @Optional String _params,
+                                      @Optional BigInteger _value) {
+        return this.submissionIds.get(getSubmissionKey(_nonce, newCall(_destination, _method, _params, _value)));
+    }
+
+    /**
+     * Returns the last block height at which the transaction can be confirmed, or null if it does not expire.
+     */
+    @External(readonly=true)
+    public BigInteger getTransactionExpiry(BigInteger _transactionId) {
+        return this.expiries.get(_transactionId);
+    }
+
+    @External(readonly=true)
+    public BigInteger getDailyLimit() {
+        return this.dailyLimit.getOrDefault(BigInteger.ZERO);
+    }
+
+    /**
+     * Returns the amount of ICX that can still be sent within the daily limit in the current window.
+     */
+    @External(readonly=true)
+    public BigInteger getRemainingDailyLimit() {
+        BigInteger limit = this.dailyLimit.getOrDefault(BigInteger.ZERO);
+        if (this.lastDay.getOrDefault(-1L) != Context.getBlockHeight() / BLOCKS_PER_DAY) {
+            return limit;
+        }
+        return limit.subtract(this.spentToday.get()).max(BigInteger.ZERO);
+    }
+
     @External(readonly=true)
     public BigInteger getRequirement() {
         return this.required.get();
@@ -193,58 +574,168 @@ public class MultiSigWallet
 
     @External(readonly=true)
     public int getConfirmationCount(BigInteger _transactionId) {
+        if (!isStale(_transactionId)) {
+            return this.confirmationCounts.getOrDefault(_transactionId, 0);
+        }
+        DictDB<Integer, byte[]> words = this.confirmations.at(_transactionId);
+        int wordCount = getWordCount();
         int count = 0;
-        for (int i = 0; i < this.owners.size(); i++) {
-            if (this.confirmations.at(_transactionId).getOrDefault(this.owners.get(i), false)) {
-                count++;
-            }
+        for (int w = 0; w < wordCount; w++) {
+            count += Bits.count(getWord(words, w, true));
         }
         return count;
     }
 
+    /**
+     * Returns the weight of the given owner, which is always 1 unless the wallet is in the weighted mode,
+     * or 0 if it is not an owner.
+     */
+    @External(readonly=true)
+    public BigInteger getWalletOwnerWeight(Address _walletOwner) {
+        Integer slot = this.ownerSlots.get(_walletOwner);
+        if (slot == null) {
+            return BigInteger.ZERO;
+        }
+        return this.slotWeights.getOrDefault(slot, BigInteger.ONE);
+    }
+
+    /**
+     * Returns the total weight of the confirmations, which equals the confirmation count
+     * unless the wallet is in the weighted mode.
+     */
+    @External(readonly=true)
+    public BigInteger getConfirmationWeight(BigInteger _transactionId) {
+        if (!this.weighted.getOrDefault(false)) {
+            return BigInteger.valueOf(getConfirmationCount(_transactionId));
+        }
+        if (!isStale(_transactionId)) {
+            return this.confirmationWeights.getOrDefault(_transactionId, BigInteger.ZERO);
+        }
+        DictDB<Integer, byte[]> words = this.confirmations.at(_transactionId);
+        int wordCount = getWordCount();
+        BigInteger weight = BigInteger.ZERO;
+        for (int w = 0; w < wordCount; w++) {
+            weight = weight.add(getWeight(getWord(words, w, true), w));
+        }
+        return weight;
+    }
+
+    /**
+     * Returns the owners who have confirmed the given transaction in the order of their slots,
+     * which includes the removed owners for the executed transactions.
+     */
     @External(readonly=true)
     public List<Address> getConfirmations(BigInteger _transactionId) {
-        int len = this.owners.size();
-        Address[] array = new Address[len];
-        int count = 0;
-        for (int i = 0; i < len; i++) {
-            Address owner = this.owners.get(i);
-            if (this.confirmations.at(_transactionId).getOrDefault(owner, false)) {
-                array[count++] = owner;
+        DictDB<Integer, byte[]> words = this.confirmations.at(_transactionId);
+        boolean stale = isStale(_transactionId);
+        Address[] confirmations = new Address[getConfirmationCount(_transactionId)];
+        int wordCount = getWordCount();
+        int index = 0;
+        for (int w = 0; w < wordCount && index < confirmations.length; w++) {
+            byte[] word = getWord(words, w, stale);
+            for (int bit = Bits.next(word, 0); bit >= 0; bit = Bits.next(word, bit + 1)) {
+                confirmations[index++] = this.slotOwners.get(w * WORD_BITS + bit);
             }
         }
-        Address[] confirmations = new Address[count];
-        System.arraycopy(array, 0, confirmations, 0, count);
         return List.of(confirmations);
     }
 
+    /**
+     * Returns the confirmations of the given transactions as bitsets, where the bit {@code i} of the byte
+     * {@code i / 8} is set if the owner of the slot {@code i} has confirmed. The slots of the owners
+     * are returned by {@link #getWalletOwnerSlots}, and the owners of the slots by {@link #getSlotOwners}.
+     */
+    @External(readonly=true)
+    public List<byte[]> getConfirmationBits(BigInteger[] _transactionIds) {
+        Context.require(_transactionIds.length <= MAX_PAGE_SIZE);
+        int wordCount = getWordCount();
+        byte[][] entries = new byte[_transactionIds.length][];
+        for (int i = 0; i < entries.length; i++) {
+            DictDB<Integer, byte[]> words = this.confirmations.at(_transactionIds[i]);
+            boolean stale = isStale(_transactionIds[i]);
+            byte[] bits = new byte[0];
+            for (int w = 0; w < wordCount; w++) {
+                byte[] word = getWord(words, w, stale);
+                if (word != null) {
+                    // the words before are padded to the full length
+                    byte[] tmp = new byte[w * (WORD_BITS / 8) + word.length];
+                    System.arraycopy(bits, 0, tmp, 0, bits.length);
+                    System.arraycopy(word, 0, tmp, w * (WORD_BITS / 8), word.length);
+                    bits = tmp;
+                }
+            }
+            entries[i] = bits;
+        }
+        return List.of(entries);
+    }
+
+    /**
+     * Returns the slots of the owners in the same order as {@link #getWalletOwners}.
+     */
+    @External(readonly=true)
+    public List<Integer> getWalletOwnerSlots() {
+        int len = this.owners.size();
+        Integer[] slots = new Integer[len];
+        for (int i = 0; i < len; i++) {
+            slots[i] = this.ownerSlots.get(this.owners.get(i));
+        }
+        return List.of(slots);
+    }
+
+    /**
+     * Returns the owners who have been assigned the given slots, including the removed ones,
+     * so that any bit of {@link #getConfirmationBits} can be decoded.
+     */
+    @External(readonly=true)
+    public List<Address> getSlotOwners(int[] _slots) {
+        Context.require(_slots.length <= MAX_PAGE_SIZE);
+        int slotCount = this.slotCount.getOrDefault(0);
+        Address[] slotOwners = new Address[_slots.length];
+        for (int i = 0; i < _slots.length; i++) {
+            Context.require(_slots[i] >= 0 && _slots[i] < slotCount);
+            slotOwners[i] = this.slotOwners.get(_slots[i]);
+        }
+        return List.of(slotOwners);
+    }
+
+    /**
+     * Returns the number of the pending and/or the executed transactions.
+     * The pending count includes the expired transactions until they are evicted.
+     */
     @External(readonly=true)
     public BigInteger getTransactionCount(boolean _pending, boolean _executed) {
         BigInteger count = BigInteger.ZERO;
-        BigInteger total = this.transactionCount.getOrDefault(BigInteger.ZERO);
-        while (total.signum() > 0) {
-            total = total.subtract(BigInteger.ONE);
-            Transaction transaction = this.transactions.get(total);
-            if (_pending && !transaction.executed() || _executed && transaction.executed()) {
-                count = count.add(BigInteger.ONE);
-            }
+        if (_pending) {
+            count = count.add(BigInteger.valueOf(this.pendingIds.size()));
+        }
+        if (_executed) {
+            count = count.add(BigInteger.valueOf(this.executedIds.size()));
         }
         return count;
     }
 
     @External(readonly=true)
     public Map<String, String> getTransactionInfo(BigInteger _transactionId) {
-        Transaction transaction = this.transactions.get(_transactionId);
-        if (transaction == null) {
+        Integer status = this.statuses.get(_transactionId);
+        if (status == null) {
             return Map.of();
         }
-        return transaction.toMap(_transactionId);
+        boolean expired = status == STATUS_EXPIRED || status == STATUS_PENDING && isExpired(_transactionId);
+        return toMap(_transactionId, status == STATUS_EXECUTED, expired);
     }
 
+    /**
+     * Returns the transaction IDs in the range of [_offset, _offset + _count) that match the given filter.
+     * If only pending transactions are requested, the range is taken from the pending transactions
+     * (in no particular order) rather than from all the transaction IDs.
+     */
     @External(readonly=true)
     public List<BigInteger> getTransactionIds(BigInteger _offset, BigInteger _count,
                                               boolean _pending, boolean _executed) {
         Context.require(_offset.signum() >= 0 && _count.signum() >= 0);
+        if (_pending && !_executed) {
+            return List.of(getPendingIds(_offset, _count));
+        }
         BigInteger total = this.transactionCount.getOrDefault(BigInteger.ZERO);
         if (_offset.add(_count).compareTo(total) > 0) {
             _count = total.subtract(_offset);
@@ -257,8 +748,7 @@ public class MultiSigWallet
         for (int i = 0; _count.signum() > 0; i++) {
             _count = _count.subtract(BigInteger.ONE);
             BigInteger transactionId = _offset.add(BigInteger.valueOf(i));
-            Transaction transaction = this.transactions.get(transactionId);
-            if (_pending && !transaction.executed() || _executed && transaction.executed()) {
+            if (matches(transactionId, this.statuses.get(transactionId), _pending, _executed)) {
                 entries[index++] = transactionId;
             }
         }
@@ -270,10 +760,23 @@ public class MultiSigWallet
         return List.of(entries);
     }
 
+    /**
+     * Returns the transactions in the range of [_offset, _offset + _count) that match the given filter.
+     * The range is interpreted in the same way as {@link #getTransactionIds}.
+     */
     @External(readonly=true)
     public List<Map<String, String>> getTransactionList(BigInteger _offset, BigInteger _count,
                                                         boolean _pending, boolean _executed) {
         Context.require(_offset.signum() >= 0 && _count.signum() >= 0);
+        if (_pending && !_executed) {
+            BigInteger[] ids = getPendingIds(_offset, _count);
+            @SuppressWarnings("unchecked")
+            Map<String, String>[] entries = new Map[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                entries[i] = toMap(ids[i], false, false);
+            }
+            return List.of(entries);
+        }
         BigInteger total = this.transactionCount.getOrDefault(BigInteger.ZERO);
         if (_offset.add(_count).compareTo(total) > 0) {
             _count = total.subtract(_offset);
@@ -287,9 +790,9 @@ public class MultiSigWallet
         for (int i = 0; _count.signum() > 0; i++) {
             _count = _count.subtract(BigInteger.ONE);
             BigInteger transactionId = _offset.add(BigInteger.valueOf(i));
-            Transaction transaction = this.transactions.get(transactionId);
-            if (_pending && !transaction.executed() || _executed && transaction.executed()) {
-                entries[index++] = transaction.toMap(transactionId);
+            int status = this.statuses.get(transactionId);
+            if (matches(transactionId, status, _pending, _executed)) {
+                entries[index++] = toMap(transactionId, status == STATUS_EXECUTED, false);
             }
         }
         if (index < entries.length) {
@@ -301,6 +804,71 @@ public class MultiSigWallet
         return List.of(entries);
     }
 
+    /**
+     * Returns a page of transactions that match the given filter, starting from the given cursor.
+     * Pending and executed transactions are walked through their own indexes, so every returned entry costs
+     * a fixed number of reads regardless of the filter. The returned map contains the transactions
+     * in {@code _transactions}, and the cursor for the next page in {@code _next} if there are more.
+     * Note that the pending transactions are not ordered, and may be skipped or repeated
+     * if some of them are executed while paging.
+     */
+    @External(readonly=true)
+    public Map<String, Object> getTransactionPage(@Optional BigInteger _cursor, int _count,
+                                                  boolean _pending, boolean _executed) {
+        Context.require(_count > 0 && _count <= MAX_PAGE_SIZE);
+        Context.require(_cursor == null || _cursor.signum() >= 0);
+        int size;
+        if (_pending && _executed) {
+            size = this.transactionCount.getOrDefault(BigInteger.ZERO).intValue();
+        } else if (_pending) {
+            size = this.pendingIds.size();
+        } else if (_executed) {
+            size = this.executedIds.size();
+        } else {
+            size = 0;
+        }
+        int start = (_cursor == null) ? 0 : _cursor.min(BigInteger.valueOf(size)).intValue();
+        int end = Math.min(start + _count, size);
+        @SuppressWarnings("unchecked")
+        Map<String, String>[] entries = new Map[end - start];
+        int index = 0;
+        for (int i = start; i < end; i++) {
+            BigInteger transactionId;
+            boolean executed;
+            if (_pending && _executed) {
+                transactionId = BigInteger.valueOf(i);
+                int status = this.statuses.get(transactionId);
+                if (!matches(transactionId, status, true, true)) {
+                    continue;
+                }
+                executed = status == STATUS_EXECUTED;
+            } else if (_pending) {
+                transactionId = this.pendingIds.get(i);
+                if (isExpired(transactionId)) {
+                    continue;
+                }
+                executed = false;
+            } else {
+                transactionId = this.executedIds.get(i);
+                executed = true;
+            }
+            entries[index++] = toMap(transactionId, executed, false);
+        }
+        if (index < entries.length) {
+            @SuppressWarnings("unchecked")
+            Map<String, String>[] tmp = new Map[index];
+            System.arraycopy(entries, 0, tmp, 0, index);
+            entries = tmp;
+        }
+        if (end < size) {
+            return Map.of(
+                    "_transactions", List.of(entries),
+                    "_next", Hex.encode(end)
+            );
+        }
+        return Map.of("_transactions", List.of(entries));
+    }
+
     /*
      * Assertion methods
      */
@@ -309,7 +877,13 @@ public class MultiSigWallet
         Context.require(Context.getAddress().equals(Context.getCaller()));
     }
 
-    private void checkRequirement(int ownerCount, BigInteger required) {
+    private void checkRequirement(int ownerCount, BigInteger totalWeight, BigInteger required) {
+        if (this.weighted.getOrDefault(false)) {
+            Context.require((ownerCount <= MAX_OWNER_COUNT)
+                    && (required.compareTo(totalWeight) <= 0)
+                    && (required.signum() > 0));
+            return;
+        }
         int _required = required.intValue();
         Context.require((ownerCount <= MAX_OWNER_COUNT)
                 && (_required <= ownerCount)
@@ -317,85 +891,428 @@ public class MultiSigWallet
     }
 
     private void checkOwnerExist(Address owner) {
-        //TODO: iteration is not efficient. Consider to use a Map.
-        for (int i = 0; i < this.owners.size(); i++) {
-            if (owner.equals(this.owners.get(i))) {
-                return;
-            }
+        if (this.ownerIndex.get(owner) == null) {
+            Context.revert(100, "Owner not exist");
         }
-        Context.revert(100, "Owner not exist");
     }
 
     private void checkOwnerDoesNotExist(Address owner) {
-        //TODO: iteration is not efficient. Consider to use a Map.
-        for (int i = 0; i < this.owners.size(); i++) {
-            if (owner.equals(this.owners.get(i))) {
-                Context.revert(101, "Owner already exists");
-            }
+        if (this.ownerIndex.get(owner) != null) {
+            Context.revert(101, "Owner already exists");
         }
     }
 
     private void checkTransactionExist(BigInteger transactionId) {
-        Context.require(this.transactions.get(transactionId) != null);
-    }
-
-    private void checkConfirmed(BigInteger transactionId, Address sender) {
-        Context.require(this.confirmations.at(transactionId).getOrDefault(sender, false));
-    }
-
-    private void checkNotConfirmed(BigInteger transactionId, Address sender) {
-        Context.require(!this.confirmations.at(transactionId).getOrDefault(sender, false));
+        Context.require(this.statuses.get(transactionId) != null);
     }
 
     private void checkNotExecuted(BigInteger transactionId) {
-        Transaction transaction = this.transactions.get(transactionId);
-        Context.require(!transaction.executed());
+        Context.require(this.statuses.get(transactionId) == STATUS_PENDING);
     }
 
     /*
      * Internal methods
      */
-    private BigInteger addTransaction(Address destination, String method, String params,
-                                      BigInteger value, String description) {
+    private void addOwner(Address owner, BigInteger weight) {
+        this.ownerIndex.set(owner, this.owners.size());
+        this.owners.add(owner);
+        assignSlot(owner, weight);
+    }
+
+    /**
+     * Assigns a new slot to the owner. The weight is null unless the wallet is in the weighted mode.
+     */
+    private void assignSlot(Address owner, BigInteger weight) {
+        int slot = this.slotCount.getOrDefault(0);
+        Context.require(slot < MAX_SLOT_COUNT);
+        this.ownerSlots.set(owner, slot);
+        this.slotOwners.set(slot, owner);
+        this.slotCount.set(slot + 1);
+        if (weight != null) {
+            this.slotWeights.set(slot, weight);
+            this.totalWeight.set(this.totalWeight.getOrDefault(BigInteger.ZERO).add(weight));
+        }
+    }
+
+    private Transaction newTransaction(Address destination, String method, String params,
+                                       BigInteger value, String description) {
+        return new Transaction(new Call[]{newCall(destination, method, params, value)}, description);
+    }
+
+    private Call newCall(Address destination, String method, String params, BigInteger value) {
+        try {
+            // the params are converted here once, so that bad params are rejected at submission
+            return new Call(destination, method, params, value);
+        } catch (RuntimeException e) {
+            Context.revert(102, "Invalid params");
+            return null;
+        }
+    }
+
+    private BigInteger addTransaction(Transaction transaction) {
+        evictExpired();
         BigInteger transactionId = this.transactionCount.getOrDefault(BigInteger.ZERO);
-        this.transactions.set(transactionId,
-                new Transaction(destination, method, params, value, description));
+        this.transactions.set(transactionId, transaction);
+        this.statuses.set(transactionId, STATUS_PENDING);
         this.transactionCount.set(transactionId.add(BigInteger.ONE));
+        this.pendingIndex.set(transactionId, this.pendingIds.size());
+        this.pendingIds.add(transactionId);
+        // the new transaction has nothing to catch up with
+        int epoch = this.ownerEpoch.getOrDefault(0);
+        if (epoch > 0) {
+            this.confirmationEpochs.set(transactionId, epoch);
+        }
         Submission(transactionId);
         return transactionId;
     }
 
-    private void executeTransaction(BigInteger transactionId) {
+    /**
+     * Sets the confirmation bit of the given slot, and returns false if it has already been set.
+     * Only the word of the slot and the confirmation count are accessed, regardless of the number of owners.
+     */
+    private boolean addConfirmation(BigInteger transactionId, int slot) {
+        catchUp(transactionId);
+        DictDB<Integer, byte[]> words = this.confirmations.at(transactionId);
+        byte[] word = words.get(slot / WORD_BITS);
+        if (Bits.isSet(word, slot % WORD_BITS)) {
+            return false;
+        }
+        words.set(slot / WORD_BITS, Bits.set(word, slot % WORD_BITS));
+        this.confirmationCounts.set(transactionId, this.confirmationCounts.getOrDefault(transactionId, 0) + 1);
+        BigInteger weight = this.slotWeights.get(slot);
+        if (weight != null) {
+            this.confirmationWeights.set(transactionId,
+                    this.confirmationWeights.getOrDefault(transactionId, BigInteger.ZERO).add(weight));
+        }
+        return true;
+    }
+
+    /**
+     * Clears the confirmation bit of the given slot, and returns false if it has not been set.
+     */
+    private boolean removeConfirmation(BigInteger transactionId, int slot) {
+        catchUp(transactionId);
+        DictDB<Integer, byte[]> words = this.confirmations.at(transactionId);
+        byte[] word = words.get(slot / WORD_BITS);
+        if (!Bits.isSet(word, slot % WORD_BITS)) {
+            return false;
+        }
+        words.set(slot / WORD_BITS, Bits.clear(word, slot % WORD_BITS));
+        this.confirmationCounts.set(transactionId, this.confirmationCounts.get(transactionId) - 1);
+        BigInteger weight = this.slotWeights.get(slot);
+        if (weight != null) {
+            this.confirmationWeights.set(transactionId, this.confirmationWeights.get(transactionId).subtract(weight));
+        }
+        return true;
+    }
+
+    private boolean executeTransaction(BigInteger transactionId) {
         if (isConfirmed(transactionId)) {
-            Transaction transaction = this.transactions.get(transactionId);
-            Context.require(!transaction.executed());
-            if (externalCall(transaction)) {
-                transaction.setExecuted(true);
-                // we need to set the transaction again since we changed the executed status
-                this.transactions.set(transactionId, transaction);
-                Execution(transactionId);
-            } else {
-                ExecutionFailure(transactionId);
+            checkNotExecuted(transactionId);
+            return runTransaction(transactionId, this.transactions.get(transactionId));
+        }
+        return false;
+    }
+
+    private boolean runTransaction(BigInteger transactionId, Transaction transaction) {
+        if (externalCall(transactionId, transaction)) {
+            // only the status is rewritten, the transaction payload is immutable
+            this.statuses.set(transactionId, STATUS_EXECUTED);
+            removePending(transactionId);
+            this.executedIds.add(transactionId);
+            Execution(transactionId);
+            return true;
+        }
+        ExecutionFailure(transactionId);
+        return false;
+    }
+
+    private static boolean isTransfer(Transaction transaction) {
+        String method = transaction.method();
+        BigInteger value = transaction.value();
+        return transaction.calls().length == 1
+                && (method == null || method.isEmpty())
+                && transaction.calls()[0].getConvertedParams() == null
+                && value != null && value.signum() > 0;
+    }
+
+    /**
+     * Returns the SHA3-256 hash of the RLP-encoded list of the nonce and the payload of the call,
+     * where the params are the rebuilt ones, and the omitted method, params and value are the same as the empty ones.
+     */
+    private static byte[] getSubmissionKey(BigInteger nonce, Call call) {
+        ByteArrayObjectWriter w = Context.newByteArrayObjectWriter("RLPn");
+        w.beginList(5);
+        w.write(nonce);
+        w.write(call.destination());
+        w.write((call.method() == null) ? "" : call.method());
+        w.write((call.params() == null) ? "" : call.params());
+        w.write((call.value() == null) ? BigInteger.ZERO : call.value());
+        w.end();
+        return Context.hash("sha3-256", w.toByteArray());
+    }
+
+    /**
+     * Adds the value to the amount spent in the current window, and returns false without any change
+     * if it would exceed the daily limit.
+     */
+    private boolean spendDailyLimit(BigInteger value) {
+        BigInteger limit = this.dailyLimit.get();
+        if (limit == null) {
+            return false;
+        }
+        long day = Context.getBlockHeight() / BLOCKS_PER_DAY;
+        boolean sameDay = this.lastDay.getOrDefault(-1L) == day;
+        BigInteger spent = sameDay ? this.spentToday.get().add(value) : value;
+        if (spent.compareTo(limit) > 0) {
+            return false;
+        }
+        if (!sameDay) {
+            this.lastDay.set(day);
+        }
+        this.spentToday.set(spent);
+        return true;
+    }
+
+    /**
+     * Returns the info of the given transaction, which only has the ID and the status if it has been pruned.
+     */
+    private Map<String, String> toMap(BigInteger transactionId, boolean executed, boolean expired) {
+        Transaction transaction = this.transactions.get(transactionId);
+        if (transaction == null) {
+            return Map.of(
+                    "_executed", executed ? "0x1" : "0x0",
+                    "_expired", expired ? "0x1" : "0x0",
+                    "_pruned", "0x1",
+                    "_transactionId", Hex.encode(transactionId)
+            );
+        }
+        return transaction.toMap(transactionId, executed, expired);
+    }
+
+    /**
+     * Deletes the given transaction and its confirmations, and returns the rolling hash updated with them.
+     * The new hash is the SHA3-256 hash of the RLP-encoded list of the previous hash, the transaction ID,
+     * the transaction and the list of the confirmation words.
+     */
+    private byte[] prune(byte[] hash, BigInteger transactionId) {
+        ByteArrayObjectWriter w = Context.newByteArrayObjectWriter("RLPn");
+        w.beginList(4);
+        w.writeNullable(hash);
+        w.write(transactionId);
+        Transaction.writeObject(w, this.transactions.get(transactionId));
+        DictDB<Integer, byte[]> words = this.confirmations.at(transactionId);
+        int wordCount = getWordCount();
+        w.beginList(wordCount);
+        for (int i = 0; i < wordCount; i++) {
+            byte[] word = words.get(i);
+            w.writeNullable(word);
+            if (word != null) {
+                words.set(i, null);
             }
         }
+        w.end();
+        w.end();
+        this.transactions.set(transactionId, null);
+        this.confirmationCounts.set(transactionId, null);
+        this.confirmationWeights.set(transactionId, null);
+        this.confirmationEpochs.set(transactionId, null);
+        this.expiries.set(transactionId, null);
+        return Context.hash("sha3-256", w.toByteArray());
     }
 
-    private boolean isConfirmed(BigInteger transactionId) {
-        int count = 0;
-        int required = this.required.get().intValue();
-        for (int i = 0; i < this.owners.size(); i++) {
-            if (this.confirmations.at(transactionId).getOrDefault(this.owners.get(i), false)) {
-                count++;
+    private boolean matches(BigInteger transactionId, int status, boolean pending, boolean executed) {
+        return pending && status == STATUS_PENDING && !isExpired(transactionId)
+                || executed && status == STATUS_EXECUTED;
+    }
+
+    private boolean isExpired(BigInteger transactionId) {
+        BigInteger expiry = this.expiries.get(transactionId);
+        return expiry != null && expiry.compareTo(BigInteger.valueOf(Context.getBlockHeight())) < 0;
+    }
+
+    /**
+     * Moves the given pending transaction to the expired ones if it has expired, and returns true if so.
+     */
+    private boolean evictIfExpired(BigInteger transactionId) {
+        if (!isExpired(transactionId)) {
+            return false;
+        }
+        this.statuses.set(transactionId, STATUS_EXPIRED);
+        removePending(transactionId);
+        Expiration(transactionId);
+        return true;
+    }
+
+    /**
+     * Checks a few pending transactions from where the previous call stopped, and evicts the expired ones,
+     * so that abandoned transactions are cleaned up without a bulk sweep.
+     */
+    private void evictExpired() {
+        int cursor = this.evictionCursor.getOrDefault(0);
+        for (int i = 0; i < EVICTION_COUNT; i++) {
+            int size = this.pendingIds.size();
+            if (size == 0) {
+                break;
+            }
+            cursor %= size;
+            // the evicted one is replaced by the topmost id, which needs to be checked at the same position
+            if (!evictIfExpired(this.pendingIds.get(cursor))) {
+                cursor++;
+            }
+        }
+        this.evictionCursor.set(cursor);
+    }
+
+    private void removePending(BigInteger transactionId) {
+        // move the topmost id into the slot of the removed one
+        int index = this.pendingIndex.get(transactionId);
+        BigInteger top = this.pendingIds.pop();
+        if (!top.equals(transactionId)) {
+            this.pendingIds.set(index, top);
+            this.pendingIndex.set(top, index);
+        }
+        this.pendingIndex.set(transactionId, null);
+    }
+
+    private BigInteger[] getPendingIds(BigInteger offset, BigInteger count) {
+        int size = this.pendingIds.size();
+        if (offset.compareTo(BigInteger.valueOf(size)) >= 0) {
+            return new BigInteger[0];
+        }
+        int start = offset.intValue();
+        BigInteger[] ids = new BigInteger[count.min(BigInteger.valueOf(size - start)).intValue()];
+        int index = 0;
+        for (int i = 0; i < ids.length; i++) {
+            BigInteger transactionId = this.pendingIds.get(start + i);
+            // the expired ones that have not been evicted yet are skipped
+            if (!isExpired(transactionId)) {
+                ids[index++] = transactionId;
             }
         }
+        if (index < ids.length) {
+            BigInteger[] tmp = new BigInteger[index];
+            System.arraycopy(ids, 0, tmp, 0, index);
+            ids = tmp;
+        }
+        return ids;
+    }
+
+    private boolean isConfirmed(BigInteger transactionId) {
+        if (this.weighted.getOrDefault(false)) {
+            // unlike the count, the weight may jump over the threshold
+            return this.confirmationWeights.getOrDefault(transactionId, BigInteger.ZERO)
+                    .compareTo(this.required.get()) >= 0;
+        }
+        int count = getConfirmationCount(transactionId);
+        int required = this.required.get().intValue();
         // execute the transaction only if the confirmed count exactly matches the required
         return count == required;
     }
 
-    private boolean externalCall(Transaction transaction) {
+    /**
+     * Marks the slot of the removed owner as released, so that its confirmations of the pending transactions
+     * are no longer counted. They are actually withdrawn by {@link #catchUp} when each transaction is touched next,
+     * hence this costs the same regardless of the number of pending transactions.
+     * The slot itself is not reused, hence the confirmations of executed transactions are kept intact.
+     * Returns the weight of the owner, which is null unless the wallet is in the weighted mode.
+     */
+    private BigInteger releaseSlot(Address owner) {
+        int slot = this.ownerSlots.get(owner);
+        this.releasedSlots.set(slot / WORD_BITS, Bits.set(this.releasedSlots.get(slot / WORD_BITS), slot % WORD_BITS));
+        this.ownerEpoch.set(this.ownerEpoch.getOrDefault(0) + 1);
+        this.ownerSlots.set(owner, null);
+        BigInteger weight = this.slotWeights.get(slot);
+        if (weight != null) {
+            this.slotWeights.set(slot, null);
+            this.totalWeight.set(this.totalWeight.get().subtract(weight));
+        }
+        return weight;
+    }
+
+    /**
+     * Withdraws the confirmations of the slots released since the given transaction was last touched,
+     * and recalculates its confirmation count and weight with the current weights. This reads a word per 256 slots,
+     * and the weight of each confirmation in the weighted mode, only once per change of the owners.
+     */
+    private void catchUp(BigInteger transactionId) {
+        int epoch = this.ownerEpoch.getOrDefault(0);
+        if (epoch == 0 || this.confirmationEpochs.getOrDefault(transactionId, 0) == epoch) {
+            return;
+        }
+        DictDB<Integer, byte[]> words = this.confirmations.at(transactionId);
+        boolean weighted = this.weighted.getOrDefault(false);
+        int wordCount = getWordCount();
+        int count = 0;
+        BigInteger weight = BigInteger.ZERO;
+        for (int w = 0; w < wordCount; w++) {
+            byte[] word = words.get(w);
+            if (word == null) {
+                continue;
+            }
+            byte[] live = Bits.andNot(word, this.releasedSlots.get(w));
+            if (live != word) {
+                words.set(w, live);
+            }
+            count += Bits.count(live);
+            if (weighted) {
+                weight = weight.add(getWeight(live, w));
+            }
+        }
+        this.confirmationCounts.set(transactionId, count);
+        if (weighted) {
+            this.confirmationWeights.set(transactionId, weight);
+        }
+        this.confirmationEpochs.set(transactionId, epoch);
+    }
+
+    /**
+     * Returns true if the given transaction is not executed and has not caught up with the changes of the owners.
+     */
+    private boolean isStale(BigInteger transactionId) {
+        int epoch = this.ownerEpoch.getOrDefault(0);
+        if (epoch == 0 || this.confirmationEpochs.getOrDefault(transactionId, 0) == epoch) {
+            return false;
+        }
+        Integer status = this.statuses.get(transactionId);
+        return status != null && status != STATUS_EXECUTED;
+    }
+
+    /**
+     * Returns the confirmation word of the given index, without the released slots if {@code stale} is true.
+     */
+    private byte[] getWord(DictDB<Integer, byte[]> words, int w, boolean stale) {
+        byte[] word = words.get(w);
+        return (stale && word != null) ? Bits.andNot(word, this.releasedSlots.get(w)) : word;
+    }
+
+    private BigInteger getWeight(byte[] word, int w) {
+        BigInteger weight = BigInteger.ZERO;
+        for (int bit = Bits.next(word, 0); bit >= 0; bit = Bits.next(word, bit + 1)) {
+            weight = weight.add(this.slotWeights.get(w * WORD_BITS + bit));
+        }
+        return weight;
+    }
+
+    private int getWordCount() {
+        return (this.slotCount.getOrDefault(0) + WORD_BITS - 1) / WORD_BITS;
+    }
+
+    private boolean externalCall(BigInteger transactionId, Transaction transaction) {
         try {
-            Context.call(transaction.value(), transaction.destination(),
-                    transaction.method(), transaction.getConvertedParams());
+            Call[] calls = transaction.calls();
+            if (calls.length == 1) {
+                Context.call(calls[0].value(), calls[0].destination(),
+                        calls[0].method(), calls[0].getConvertedParams());
+            } else {
+                // call back into the wallet, so that the failure of any call reverts the whole batch
+                this.executingId.set(transactionId);
+                try {
+                    Context.call(Context.getAddress(), "executeCalls", transactionId);
+                } finally {
+                    this.executingId.set(null);
+                }
+            }
             return true;
         } catch (Exception e) {
             Context.println("[Exception] " + e.getMessage());
@@ -412,6 +1329,12 @@ public class MultiSigWallet
     @EventLog(indexed=1)
     protected void WalletOwnerRemoval(Address _walletOwner) {}
 
+    @EventLog(indexed=1)
+    protected void WalletOwnerWeightChange(Address _walletOwner, BigInteger _weight) {}
+
+    @EventLog
+    protected void DailyLimitChange(BigInteger _dailyLimit) {}
+
     @EventLog
     protected void RequirementChange(BigInteger _required) {}
 
@@ -421,6 +1344,9 @@ public class MultiSigWallet
     @EventLog(indexed=2)
     protected void Confirmation(Address _sender, BigInteger _transactionId) {}
 
+    @EventLog(indexed=2)
+    protected void ConfirmationFailure(Address _sender, BigInteger _transactionId) {}
+
     @EventLog(indexed=2)
     protected void Revocation(Address _sender, BigInteger _transactionId) {}
 
@@ -430,6 +1356,12 @@ public class MultiSigWallet
     @EventLog(indexed=1)
     protected void ExecutionFailure(BigInteger _transactionId) {}
 
+    @EventLog(indexed=1)
+    protected void Expiration(BigInteger _transactionId) {}
+
+    @EventLog(indexed=1)
+    protected void Pruning(BigInteger _cursor, byte[] _hash) {}
+
     @EventLog(indexed=1)
     protected void Deposit(Address _sender, BigInteger _value) {}
 
@@ -0,0 +1,262 @@
+/*
+ * Copyright 2020 ICONLOOP Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iconloop.score.example;
+
+import score.Address;
+
+import java.math.BigInteger;
+
+/**
+ * Single-pass parser for the transaction params, which should be a JSON array of
+ * {@code {"name": ..., "type": ..., "value": ...}} objects with string members.
+ * Each param is converted into the call argument as soon as its object is read,
+ * without building an intermediate JSON tree.
+ */
+final class ParamsParser {
+    private final String json;
+    private int pos;
+    private String[] names = new String[4];
+
+    ParamsParser(String json) {
+        this.json = json;
+    }
+
+    /**
+     * Parses the given params and returns the converted call arguments.
+     *
+     * @throws IllegalArgumentException if the params are not valid
+     */
+    static Object[] parse(String json) {
+        return new ParamsParser(json).parseArray();
+    }
+
+    /**
+     * Returns the names of the params in the same order as the arguments returned by {@link #parseArray()}.
+     */
+    String[] names() {
+        return this.names;
+    }
+
+    static Object convert(String type, String value) {
+        switch (type) {
+            case "Address":
+                return Address.fromString(value);
+            case "str":
+                return value;
+            case "int":
+                // negative values may have the sign either before or after the prefix, e.g. "-0x5" or "0x-5"
+                if (value.startsWith("-0x") || value.startsWith("0x-")) {
+                    return Hex.toBigInteger(value, 3).negate();
+                } else if (value.startsWith("0x")) {
+                    return Hex.toBigInteger(value, 2);
+                }
+                return new BigInteger(value);
+            case "bool":
+                if (value.equals("0x0") || value.equals("false")) {
+                    return Boolean.FALSE;
+                } else if (value.equals("0x1") || value.equals("true")) {
+                    return Boolean.TRUE;
+                }
+                break;
+            case "bytes":
+                if (value.startsWith("0x") && (value.length() % 2 == 0)) {
+                    return Hex.decode(value, 2);
+                }
+        }
+        throw new IllegalArgumentException("Unknown type");
+    }
+
+    /**
+     * Parses the params and returns the converted call arguments.
+     *
+     * @throws IllegalArgumentException if the params are not valid
+     */
+    Object[] parseArray() {
+        skipWhitespace();
+        expect('[', "Not json array");
+        Object[] params = new Object[4];
+        int count = 0;
+        skipWhitespace();
+        if (!consume(']')) {
+            do {
+                if (count == params.length) {
+                    params = copyOf(params, count * 2);
+                    names = copyOf(names, count * 2);
+                }
+                params[count] = parseParam(count);
+                count++;
+                skipWhitespace();
+            } while (consume(','));
+            expect(']', "Unterminated array");
+        }
+        skipWhitespace();
+        if (pos != json.length()) {
+            throw new IllegalArgumentException("Unexpected character");
+        }
+        if (count < params.length) {
+            params = copyOf(params, count);
+            names = copyOf(names, count);
+        }
+        return params;
+    }
+
+    private Object parseParam(int index) {
+        skipWhitespace();
+        expect('{', "Not json object");
+        String name = null;
+        String type = null;
+        String value = null;
+        do {
+            skipWhitespace();
+            String key = parseString();
+            skipWhitespace();
+            expect(':', "Missing colon");
+            skipWhitespace();
+            String member = parseString();
+            switch (key) {
+                case "name":
+                    checkUnset(name);
+                    name = member;
+                    break;
+                case "type":
+                    checkUnset(type);
+                    type = member;
+                    break;
+                case "value":
+                    checkUnset(value);
+                    value = member;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown member");
+            }
+            skipWhitespace();
+        } while (consume(','));
+        expect('}', "Unterminated object");
+        if (name == null || type == null || value == null) {
+            throw new IllegalArgumentException("Incomplete params");
+        }
+        names[index] = name;
+        return convert(type, value);
+    }
+
+    private String parseString() {
+        expect('"', "Not json string");
+        int start = pos;
+        // fast path for the strings without escapes
+        while (pos < json.length()) {
+            char c = json.charAt(pos);
+            if (c == '"') {
+                return json.substring(start, pos++);
+            } else if (c == '\\') {
+                break;
+            } else if (c < 0x20) {
+                throw new IllegalArgumentException("Invalid character");
+            }
+            pos++;
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append(json, start, pos);
+        while (pos < json.length()) {
+            char c = json.charAt(pos++);
+            if (c == '"') {
+                return sb.toString();
+            } else if (c == '\\') {
+                sb.append(parseEscape());
+            } else if (c < 0x20) {
+                throw new IllegalArgumentException("Invalid character");
+            } else {
+                sb.append(c);
+            }
+        }
+        throw new IllegalArgumentException("Unterminated string");
+    }
+
+    private char parseEscape() {
+        if (pos >= json.length()) {
+            throw new IllegalArgumentException("Unterminated string");
+        }
+        char c = json.charAt(pos++);
+        switch (c) {
+            case '"':
+            case '\\':
+            case '/':
+                return c;
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case 'u':
+                if (pos + 4 > json.length()) {
+                    throw new IllegalArgumentException("Invalid escape");
+                }
+                int code = 0;
+                for (int i = 0; i < 4; i++) {
+                    code = (code << 4) | Hex.digit(json.charAt(pos++));
+                }
+                return (char) code;
+        }
+        throw new IllegalArgumentException("Invalid escape");
+    }
+
+    private void skipWhitespace() {
+        while (pos < json.length()) {
+            char c = json.charAt(pos);
+            if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+                return;
+            }
+            pos++;
+        }
+    }
+
+    private boolean consume(char c) {
+        if (pos < json.length() && json.charAt(pos) == c) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(char c, String message) {
+        if (!consume(c)) {
+            throw new IllegalArgumentException(message);
+        }
+    }
+
+    private static void checkUnset(String member) {
+        if (member != null) {
+            throw new IllegalArgumentException("Duplicated member");
+        }
+    }
+
+    private static Object[] copyOf(Object[] src, int length) {
+        Object[] dst = new Object[length];
+        System.arraycopy(src, 0, dst, 0, Math.min(src.length, length));
+        return dst;
+    }
+
+    private static String[] copyOf(String[] src, int length) {
+        String[] dst = new String[length];
+        System.arraycopy(src, 0, dst, 0, Math.min(src.length, length));
+        return dst;
+    }
+}
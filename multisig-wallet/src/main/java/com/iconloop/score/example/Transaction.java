@@ -16,175 +16,170 @@
 
 package com.iconloop.score.example;
 
-import com.eclipsesource.json.Json;
-import com.eclipsesource.json.JsonArray;
-import com.eclipsesource.json.JsonObject;
-import com.eclipsesource.json.JsonValue;
 import score.Address;
+import score.ByteArrayObjectWriter;
+import score.Context;
 import score.ObjectReader;
 import score.ObjectWriter;
 
 import java.math.BigInteger;
 import java.util.Map;
 
+/**
+ * A wallet transaction, which consists of one or more calls that are executed atomically in order.
+ */
 public class Transaction {
-    private final Address destination;
-    private final String method;
-    private final String params;
-    private final BigInteger value;
+    private final Call[] calls;
     private final String description;
-    private boolean executed;
 
-    public Transaction(Address destination, String method, String params, BigInteger value, String description) {
-        if (destination == null) {
+    public Transaction(Call[] calls, String description) {
+        if (calls.length == 0) {
             throw new IllegalArgumentException();
         }
-        this.destination = destination;
-        this.method = method;
-        this.params = params;
-        this.value = value;
+        this.calls = calls;
         this.description = description;
     }
 
     public static void writeObject(ObjectWriter w, Transaction t) {
-        w.beginList(6);
-        w.write(t.destination);
-        w.writeNullable(
-                t.method,
-                t.params,
-                t.value,
-                t.description
-        );
-        w.write(t.executed);
+        w.beginList(2);
+        w.writeNullable(t.description);
+        w.beginList(t.calls.length);
+        for (Call call : t.calls) {
+            Call.writeObject(w, call);
+        }
+        w.end();
         w.end();
     }
 
     public static Transaction readObject(ObjectReader r) {
         r.beginList();
-        Transaction t = new Transaction(
-                r.readAddress(),
-                r.readNullable(String.class),
-                r.readNullable(String.class),
-                r.readNullable(BigInteger.class),
-                r.readNullable(String.class));
-        t.setExecuted(r.readBoolean());
+        String description = r.readNullable(String.class);
+        r.beginList();
+        Call[] calls = new Call[1];
+        int count = 0;
+        while (r.hasNext()) {
+            if (count == calls.length) {
+                Call[] tmp = new Call[count * 2];
+                System.arraycopy(calls, 0, tmp, 0, count);
+                calls = tmp;
+            }
+            calls[count++] = Call.readObject(r);
+        }
         r.end();
-        return t;
-    }
-
-    public boolean executed() {
-        return this.executed;
+        r.end();
+        if (count < calls.length) {
+            Call[] tmp = new Call[count];
+            System.arraycopy(calls, 0, tmp, 0, count);
+            calls = tmp;
+        }
+        return new Transaction(calls, description);
     }
 
-    public void setExecuted(boolean status) {
-        this.executed = status;
+    public Call[] calls() {
+        return this.calls;
     }
 
     public BigInteger value() {
-        return this.value;
+        return this.calls[0].value();
     }
 
     public Address destination() {
-        return this.destination;
+        return this.calls[0].destination();
     }
 
     public String method() {
-        return this.method;
+        return this.calls[0].method();
     }
 
     public String params() {
-        return this.params;
-    }
-
-    public String description() {
-        return this.description;
+        return this.calls[0].params();
     }
 
-    public Object[] getConvertedParams() {
-        if (params == null || params.equals("")) {
-            return null;
-        }
-        JsonValue json = Json.parse(params);
-        if (!json.isArray()) {
-            throw new IllegalArgumentException("Not json array");
-        }
-        JsonArray array = json.asArray();
-        Object[] ret = new Object[array.size()];
-        int i = 0;
-        for (JsonValue item : array) {
-            JsonObject member = item.asObject();
-            if (member.size() != 3) {
-                throw new IllegalArgumentException("Invalid member size");
-            }
-            String name = member.getString("name", null);
-            String type = member.getString("type", null);
-            String value = member.getString("value", null);
-            if (name != null && type != null && value != null) {
-                ret[i++] = convertParam(type, value);
-            } else {
-                throw new IllegalArgumentException("Incomplete params");
-            }
-        }
-        return ret;
-    }
-
-    private Object convertParam(String type, String value) {
-        switch (type) {
-            case "Address":
-                return Address.fromString(value);
-            case "str":
-                return value;
-            case "int":
-                if (value.startsWith("0x")) {
-                    return new BigInteger(value.substring(2), 16);
-                }
-                return new BigInteger(value);
-            case "bool":
-                if (value.equals("0x0") || value.equals("false")) {
-                    return Boolean.FALSE;
-                } else if (value.equals("0x1") || value.equals("true")) {
-                    return Boolean.TRUE;
-                }
-                break;
-            case "bytes":
-                if (value.startsWith("0x") && (value.length() % 2 == 0)) {
-                    String hex = value.substring(2);
-                    int len = hex.length() / 2;
-                    byte[] bytes = new byte[len];
-                    for (int i = 0; i < len; i++) {
-                        int j = i * 2;
-                        bytes[i] = (byte) Integer.parseInt(hex.substring(j, j + 2), 16);
-                    }
-                    return bytes;
-                }
+    /**
+     * Returns the hash of the message that owners sign to confirm this transaction off-chain.
+     * Only single-call transactions can be signed.
+     */
+    public byte[] getSigningHash(Address wallet, BigInteger nonce) {
+        if (calls.length != 1) {
+            throw new IllegalArgumentException();
         }
-        throw new IllegalArgumentException("Unknown type");
+        ByteArrayObjectWriter w = Context.newByteArrayObjectWriter("RLPn");
+        w.beginList(7);
+        w.write(wallet);
+        w.write(nonce);
+        w.write(destination());
+        // the omitted method, params, value and description are the same as the empty ones
+        w.write((method() == null) ? "" : method());
+        w.write((params() == null) ? "" : params());
+        w.write((value() == null) ? BigInteger.ZERO : value());
+        w.write((description == null) ? "" : description);
+        w.end();
+        return Context.hash("sha3-256", w.toByteArray());
     }
 
     @Override
     public String toString() {
-        return "Transaction{" +
-                "destination=" + destination +
-                ", method='" + method + '\'' +
-                ", params='" + params + '\'' +
-                ", value=" + value +
-                ", description='" + description + '\'' +
-                ", executed=" + executed +
-                '}';
+        StringBuilder sb = new StringBuilder("Transaction{calls=[");
+        for (int i = 0; i < calls.length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(calls[i]);
+        }
+        return sb.append("], description='").append(description).append("'}").toString();
     }
 
-    public Map<String, String> toMap(BigInteger transactionId) {
+    /**
+     * Returns the transaction info. The {@code _destination}, {@code _method}, {@code _params} and {@code _value}
+     * fields describe the first call, and multi-call transactions have all the calls in {@code _calls}
+     * as a JSON array.
+     */
+    public Map<String, String> toMap(BigInteger transactionId, boolean executed, boolean expired) {
+        if (calls.length > 1) {
+            return Map.of(
+                    "_destination", destination().toString(),
+                    "_method", getSafeString(method()),
+                    "_params", getSafeString(params()),
+                    "_value", getValueString(value()),
+                    "_calls", getCallsJson(),
+                    "_description", getSafeString(description),
+                    "_executed", (executed) ? "0x1" : "0x0",
+                    "_expired", (expired) ? "0x1" : "0x0",
+                    "_transactionId", Hex.encode(transactionId)
+            );
+        }
         return Map.of(
-                "_destination", destination.toString(),
-                "_method", getSafeString(method),
-                "_params", getSafeString(params),
-                "_value", (value == null) ? "0x0" : "0x" + value.toString(16),
+                "_destination", destination().toString(),
+                "_method", getSafeString(method()),
+                "_params", getSafeString(params()),
+                "_value", getValueString(value()),
                 "_description", getSafeString(description),
                 "_executed", (executed) ? "0x1" : "0x0",
-                "_transactionId", "0x" + transactionId.toString(16)
+                "_expired", (expired) ? "0x1" : "0x0",
+                "_transactionId", Hex.encode(transactionId)
         );
     }
 
+    private String getCallsJson() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < calls.length; i++) {
+            Call call = calls[i];
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"destination\":\"").append(call.destination()).append("\",\"method\":");
+            Call.appendJsonString(sb, getSafeString(call.method()));
+            String params = call.params();
+            sb.append(",\"params\":").append((params == null) ? "[]" : params);
+            sb.append(",\"value\":\"").append(getValueString(call.value())).append("\"}");
+        }
+        return sb.append(']').toString();
+    }
+
+    private static String getValueString(BigInteger value) {
+        return (value == null) ? "0x0" : Hex.encode(value);
+    }
+
     private String getSafeString(String s) {
         if (s == null) return "";
         return s;
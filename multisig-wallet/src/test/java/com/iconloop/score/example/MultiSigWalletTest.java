@@ -20,13 +20,23 @@ import com.iconloop.score.test.Account;
 import com.iconloop.score.test.Score;
 import com.iconloop.score.test.ServiceManager;
 import com.iconloop.score.test.TestBase;
+import foundation.icon.icx.KeyWallet;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import score.Address;
+import score.ArrayDB;
+import score.BranchDB;
+import score.DictDB;
 import score.UserRevertedException;
+import score.VarDB;
 
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
@@ -34,8 +44,9 @@ import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
-import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 
@@ -56,7 +67,7 @@ class MultiSigWalletTest extends TestBase {
                 .map(a -> a.getAddress().toString())
                 .collect(Collectors.joining(","));
         multisigScore = sm.deploy(owners[0], MultiSigWallet.class,
-                initialOwners, BigInteger.TWO);
+                initialOwners, BigInteger.TWO, null);
 
         // setup spy
         multisigSpy = (MultiSigWallet) spy(multisigScore.getInstance());
@@ -130,6 +141,43 @@ class MultiSigWalletTest extends TestBase {
         @SuppressWarnings("unchecked")
         var walletOwners = (List<Address>) multisigScore.call("getWalletOwners");
         assertEquals(2, walletOwners.size());
+        // the last owner has been moved into the removed slot
+        assertEquals(List.of(owners[2].getAddress(), owners[1].getAddress()), walletOwners);
+
+        // the removed owner can no longer submit, but the moved one still can
+        assertThrows(UserRevertedException.class, () ->
+                multisigScore.invoke(owners[0], "submitTransaction",
+                        owners[0].getAddress(), "", "", BigInteger.ZERO, ""));
+        multisigScore.invoke(owners[2], "submitTransaction", owners[0].getAddress(), "", "", BigInteger.ZERO, "");
+    }
+
+    @Test
+    void removeWalletOwner_pendingConfirmation() {
+        // a pending transaction confirmed only by the 3rd owner
+        multisigScore.invoke(owners[2], "submitTransaction", owners[0].getAddress(), "", "", BigInteger.ZERO, "");
+        BigInteger pendingId = BigInteger.ZERO;
+        assertEquals(1, getConfirmationCount(pendingId));
+
+        // remove the 3rd owner
+        String params = String.format("[{\"name\": \"_walletOwner\", \"type\": \"Address\", \"value\": \"%s\"}]",
+                owners[2].getAddress());
+        multisigScore.invoke(owners[0], "submitTransaction",
+                multisigScore.getAddress(), "removeWalletOwner", params, BigInteger.ZERO, "");
+        multisigScore.invoke(owners[1], "confirmTransaction", BigInteger.ONE);
+        verify(multisigSpy).WalletOwnerRemoval(owners[2].getAddress());
+
+        // the confirmation of the removed owner should not be counted anymore
+        assertEquals(0, getConfirmationCount(pendingId));
+        multisigScore.invoke(owners[0], "confirmTransaction", pendingId);
+        assertEquals(1, getConfirmationCount(pendingId));
+        verify(multisigSpy, never()).Execution(pendingId);
+    }
+
+    @Test
+    void constructor_duplicateOwner() {
+        String duplicated = owners[0].getAddress() + "," + owners[0].getAddress();
+        assertThrows(UserRevertedException.class, () ->
+                sm.deploy(owners[0], MultiSigWallet.class, duplicated, BigInteger.ONE, null));
     }
 
     @Test
@@ -184,6 +232,226 @@ class MultiSigWalletTest extends TestBase {
         assertEquals(newReq, multisigScore.call("getRequirement"));
     }
 
+    @Test
+    void confirmTransaction_manyOwners() throws Exception {
+        for (int n : new int[]{10, 50, 200, 500}) {
+            Account[] accounts = new Account[n];
+            for (int i = 0; i < n; i++) {
+                accounts[i] = sm.createAccount();
+            }
+            String initialOwners = Arrays.stream(accounts)
+                    .map(a -> a.getAddress().toString())
+                    .collect(Collectors.joining(","));
+            Score score = sm.deploy(accounts[0], MultiSigWallet.class, initialOwners, BigInteger.valueOf(n), null);
+            score.invoke(accounts[0], "submitTransaction", accounts[0].getAddress(), "", "", BigInteger.ZERO, "");
+            for (int i = 1; i < n; i++) {
+                score.invoke(accounts[i], "confirmTransaction", BigInteger.ZERO);
+            }
+            assertEquals(n, score.call("getConfirmationCount", BigInteger.ZERO));
+            @SuppressWarnings("unchecked")
+            var confirmations = (List<Address>) score.call("getConfirmations", BigInteger.ZERO);
+            assertEquals(n, confirmations.size());
+            assertEquals(accounts[n - 1].getAddress(), confirmations.get(n - 1));
+            assertEquals(BigInteger.ONE, score.call("getTransactionCount", false, true));
+        }
+    }
+
+    @Test
+    void confirmTransaction_storageAccesses() throws Exception {
+        for (int n : new int[]{10, 50, 200, 500}) {
+            Account[] accounts = new Account[n];
+            for (int i = 0; i < n; i++) {
+                accounts[i] = sm.createAccount();
+            }
+            String initialOwners = Arrays.stream(accounts)
+                    .map(a -> a.getAddress().toString())
+                    .collect(Collectors.joining(","));
+            Score score = sm.deploy(accounts[0], MultiSigWallet.class, initialOwners, BigInteger.valueOf(3), null);
+            score.invoke(accounts[0], "submitTransaction", accounts[0].getAddress(), "", "", BigInteger.ZERO, "");
+            // the owner with the highest slot confirms, which does not execute the transaction yet
+            int[] accesses = countAccesses(score.getInstance());
+            score.invoke(accounts[n - 1], "confirmTransaction", BigInteger.ZERO);
+            assertEquals(2, score.call("getConfirmationCount", BigInteger.ZERO));
+            // the reads and writes listed in the README
+            assertArrayEquals(new int[]{13, 2}, accesses, "owners: " + n);
+        }
+    }
+
+    /**
+     * Replaces the storage fields of the wallet with proxies counting the reads and the writes.
+     */
+    private static int[] countAccesses(Object wallet) throws Exception {
+        int[] accesses = new int[2];
+        for (Field field : MultiSigWallet.class.getDeclaredFields()) {
+            Class<?> type = field.getType();
+            if (!Modifier.isStatic(field.getModifiers())
+                    && (type == VarDB.class || type == DictDB.class || type == ArrayDB.class || type == BranchDB.class)) {
+                field.setAccessible(true);
+                field.set(wallet, counting(type, field.get(wallet), accesses));
+            }
+        }
+        return accesses;
+    }
+
+    private static Object counting(Class<?> type, Object db, int[] accesses) {
+        return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            Object result;
+            try {
+                result = method.invoke(db, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            switch (method.getName()) {
+                case "at":
+                    return counting(DictDB.class, result, accesses);
+                case "get":
+                case "getOrDefault":
+                case "size":
+                    accesses[0]++;
+                    break;
+                case "set":
+                case "add":
+                case "pop":
+                case "removeLast":
+                    accesses[1]++;
+                    break;
+            }
+            return result;
+        });
+    }
+
+    @Test
+    void confirmTransaction_weighted() throws Exception {
+        // deploy a wallet with the weights of 3, 2 and 1, which needs the weight of 4
+        String initialOwners = Arrays.stream(owners)
+                .map(a -> a.getAddress().toString())
+                .collect(Collectors.joining(","));
+        Score score = sm.deploy(owners[0], MultiSigWallet.class, initialOwners, BigInteger.valueOf(4), "3,2,1");
+        var spy = (MultiSigWallet) spy(score.getInstance());
+        score.setInstance(spy);
+        assertEquals(BigInteger.TWO, score.call("getWalletOwnerWeight", owners[1].getAddress()));
+
+        // 1 + 2 does not reach the threshold
+        score.invoke(owners[2], "submitTransaction", owners[0].getAddress(), "", "", BigInteger.ZERO, "");
+        score.invoke(owners[1], "confirmTransaction", BigInteger.ZERO);
+        assertEquals(BigInteger.valueOf(3), score.call("getConfirmationWeight", BigInteger.ZERO));
+        verify(spy, never()).Execution(BigInteger.ZERO);
+        // 1 + 2 + 3 goes beyond the threshold
+        score.invoke(owners[0], "confirmTransaction", BigInteger.ZERO);
+        verify(spy).Execution(BigInteger.ZERO);
+
+        // change the weight of the lightest owner through the wallet
+        String params = String.format("[{\"name\": \"_walletOwner\", \"type\": \"Address\", \"value\": \"%s\"}," +
+                "{\"name\": \"_weight\", \"type\": \"int\", \"value\": \"0x4\"}]", owners[2].getAddress());
+        score.invoke(owners[0], "submitTransaction", score.getAddress(), "changeWalletOwnerWeight", params, BigInteger.ZERO, "");
+        score.invoke(owners[2], "confirmTransaction", BigInteger.ONE);
+        verify(spy).WalletOwnerWeightChange(owners[2].getAddress(), BigInteger.valueOf(4));
+        // now the owner can execute transactions alone
+        score.invoke(owners[2], "submitTransaction", owners[0].getAddress(), "", "", BigInteger.ZERO, "");
+        verify(spy).Execution(BigInteger.TWO);
+
+        // the confirmations of pending transactions follow the changed weights
+        score.invoke(owners[1], "submitTransaction", owners[0].getAddress(), "", "", BigInteger.ZERO, "");
+        assertEquals(BigInteger.TWO, score.call("getConfirmationWeight", BigInteger.valueOf(3)));
+        params = String.format("[{\"name\": \"_walletOwner\", \"type\": \"Address\", \"value\": \"%s\"}," +
+                "{\"name\": \"_weight\", \"type\": \"int\", \"value\": \"0x3\"}]", owners[1].getAddress());
+        score.invoke(owners[2], "submitTransaction", score.getAddress(), "changeWalletOwnerWeight", params, BigInteger.ZERO, "");
+        verify(spy).WalletOwnerWeightChange(owners[1].getAddress(), BigInteger.valueOf(3));
+        assertEquals(BigInteger.valueOf(3), score.call("getConfirmationWeight", BigInteger.valueOf(3)));
+
+        // the weights should match the owners
+        assertThrows(UserRevertedException.class, () ->
+                sm.deploy(owners[0], MultiSigWallet.class, initialOwners, BigInteger.ONE, "3,2"));
+        // the count-based wallet does not have weights
+        params = String.format("[{\"name\": \"_walletOwner\", \"type\": \"Address\", \"value\": \"%s\"}," +
+                "{\"name\": \"_weight\", \"type\": \"int\", \"value\": \"0x2\"}]", owners[0].getAddress());
+        multisigScore.invoke(owners[0], "submitTransaction",
+                multisigScore.getAddress(), "changeWalletOwnerWeight", params, BigInteger.ZERO, "");
+        confirmByOwner(owners[1], BigInteger.ZERO);
+        verify(multisigSpy).ExecutionFailure(BigInteger.ZERO);
+    }
+
+    @Test
+    void submitTransaction_dailyLimit() {
+        sm.transfer(owners[0], multisigScore.getAddress(), ICX.multiply(BigInteger.TEN));
+        // set the daily limit to 3 ICX
+        String params = String.format("[{\"name\": \"_dailyLimit\", \"type\": \"int\", \"value\": \"%s\"}]",
+                "0x" + ICX.multiply(BigInteger.valueOf(3)).toString(16));
+        multisigScore.invoke(owners[0], "submitTransaction",
+                multisigScore.getAddress(), "changeDailyLimit", params, BigInteger.ZERO, "");
+        confirmByOwner(owners[1], BigInteger.ZERO);
+        verify(multisigSpy).DailyLimitChange(ICX.multiply(BigInteger.valueOf(3)));
+
+        // transfers within the limit are executed without other confirmations
+        Address receiver = owners[2].getAddress();
+        multisigScore.invoke(owners[0], "submitTransaction", receiver, "", "", ICX.multiply(BigInteger.TWO), "");
+        verify(multisigSpy).Execution(BigInteger.ONE);
+        assertEquals(ICX, multisigScore.call("getRemainingDailyLimit"));
+        // but not beyond the limit
+        multisigScore.invoke(owners[0], "submitTransaction", receiver, "", "", ICX.multiply(BigInteger.TWO), "");
+        verify(multisigSpy, never()).Execution(BigInteger.TWO);
+        // nor the calls of methods
+        multisigScore.invoke(owners[0], "submitTransaction", multisigScore.getAddress(), "fallback", "", ICX, "");
+        verify(multisigSpy, never()).Execution(BigInteger.valueOf(3));
+        assertEquals(BigInteger.TWO, multisigScore.call("getTransactionCount", true, false));
+    }
+
+    @Test
+    void submitTransactionWithNonce() {
+        Address receiver = owners[2].getAddress();
+        BigInteger nonce = BigInteger.valueOf(1234);
+        multisigScore.invoke(owners[0], "submitTransactionWithNonce", nonce, receiver, "", "", ICX, "");
+        verify(multisigSpy).Submission(BigInteger.ZERO);
+        // the retry returns the same transaction, even from another owner
+        multisigScore.invoke(owners[1], "submitTransactionWithNonce", nonce, receiver, "", "", ICX, "retry");
+        assertEquals(BigInteger.ONE, multisigScore.call("getTransactionCount", true, true));
+        assertEquals(BigInteger.ZERO, multisigScore.call("getSubmissionId", nonce, receiver, "", "", ICX));
+
+        // a new nonce makes a new transaction
+        multisigScore.invoke(owners[0], "submitTransactionWithNonce", nonce.add(BigInteger.ONE), receiver, "", "", ICX, "");
+        verify(multisigSpy).Submission(BigInteger.ONE);
+        assertEquals(BigInteger.TWO, multisigScore.call("getTransactionCount", true, true));
+
+        // the params are compared as rebuilt, so a retry with different whitespace or hex case is the same
+        BigInteger other = nonce.add(BigInteger.TWO);
+        String params = "[{\"name\":\"_value\",\"type\":\"int\",\"value\":\"0xab\"}]";
+        String variant = "[ {\"name\": \"_value\", \"type\": \"int\", \"value\": \"0xAB\"} ]";
+        multisigScore.invoke(owners[0], "submitTransactionWithNonce", other, receiver, "foo", params, null, "");
+        verify(multisigSpy).Submission(BigInteger.TWO);
+        multisigScore.invoke(owners[1], "submitTransactionWithNonce", other, receiver, "foo", variant, null, "retry");
+        assertEquals(BigInteger.valueOf(3), multisigScore.call("getTransactionCount", true, true));
+        assertEquals(BigInteger.TWO, multisigScore.call("getSubmissionId", other, receiver, "foo", variant, null));
+    }
+
+    @Test
+    void submitTransactionWithExpiry() {
+        BigInteger expiry = BigInteger.valueOf(sm.getBlock().getHeight() + 10);
+        multisigScore.invoke(owners[0], "submitTransactionWithExpiry", expiry, owners[2].getAddress(), "", "", ICX, "");
+        multisigScore.invoke(owners[0], "submitTransactionWithExpiry", expiry, owners[2].getAddress(), "", "", ICX, "");
+        assertEquals(expiry, multisigScore.call("getTransactionExpiry", BigInteger.ZERO));
+        assertEquals("0x0", ((Map<?, ?>) multisigScore.call("getTransactionInfo", BigInteger.ZERO)).get("_expired"));
+
+        // expired transactions disappear from the pending views, and cannot be confirmed
+        sm.getBlock().increase(20);
+        assertEquals(List.of(), multisigScore.call("getTransactionIds", BigInteger.ZERO, BigInteger.TEN, true, false));
+        multisigScore.invoke(owners[1], "confirmTransaction", BigInteger.ZERO);
+        verify(multisigSpy).Expiration(BigInteger.ZERO);
+        verify(multisigSpy, never()).Execution(BigInteger.ZERO);
+        // the other one is still counted as pending until it is evicted, but reported as expired
+        assertEquals(BigInteger.ONE, multisigScore.call("getTransactionCount", true, false));
+        for (BigInteger id : new BigInteger[]{BigInteger.ZERO, BigInteger.ONE}) {
+            @SuppressWarnings("unchecked")
+            var info = (Map<String, String>) multisigScore.call("getTransactionInfo", id);
+            assertEquals("0x1", info.get("_expired"));
+            assertEquals("0x0", info.get("_executed"));
+        }
+
+        // the other one is evicted by a later submission
+        multisigScore.invoke(owners[0], "submitTransaction", owners[2].getAddress(), "", "", ICX, "");
+        verify(multisigSpy).Expiration(BigInteger.ONE);
+        assertEquals(BigInteger.ONE, multisigScore.call("getTransactionCount", true, false));
+    }
+
     @Test
     void confirmTransaction_notOwner() {
         // add new wallet owner first
@@ -194,6 +462,163 @@ class MultiSigWalletTest extends TestBase {
                 multisigScore.invoke(alice, "confirmTransaction", txId));
     }
 
+    @Test
+    void confirmTransactions() {
+        // submit dummy transactions, and confirm the last one in advance
+        int count = 3;
+        for (int i = 0; i < count; i++) {
+            multisigScore.invoke(owners[0], "submitTransaction", owners[0].getAddress(), "", "", BigInteger.ZERO, "");
+        }
+        confirmByOwner(owners[1], BigInteger.TWO);
+
+        // confirm them all at once including an unknown one
+        BigInteger unknown = BigInteger.valueOf(100);
+        multisigScore.invoke(owners[1], "confirmTransactions",
+                (Object) new BigInteger[]{BigInteger.ZERO, BigInteger.ONE, BigInteger.TWO, unknown});
+        verify(multisigSpy).Execution(BigInteger.ZERO);
+        verify(multisigSpy).Execution(BigInteger.ONE);
+        verify(multisigSpy).ConfirmationFailure(owners[1].getAddress(), BigInteger.TWO);
+        verify(multisigSpy).ConfirmationFailure(owners[1].getAddress(), unknown);
+
+        var txCount = (BigInteger) multisigScore.call("getTransactionCount", false, true);
+        assertEquals(count, txCount.intValue());
+
+        // only owners can confirm
+        Account alice = sm.createAccount();
+        assertThrows(UserRevertedException.class, () ->
+                multisigScore.invoke(alice, "confirmTransactions", (Object) new BigInteger[]{BigInteger.ZERO}));
+    }
+
+    @Test
+    void confirmTransactions_readdedOwner() {
+        // remove and add the second owner again in a single transaction, which gives it a new slot
+        Address wallet = multisigScore.getAddress();
+        String params = String.format("[{\"name\": \"_walletOwner\", \"type\": \"Address\", \"value\": \"%s\"}]",
+                owners[1].getAddress());
+        multisigScore.invoke(owners[0], "submitMultiTransaction",
+                new Address[]{wallet, wallet},
+                new String[]{"removeWalletOwner", "addWalletOwner"},
+                new String[]{params, params},
+                new BigInteger[]{BigInteger.ZERO, BigInteger.ZERO},
+                "");
+        multisigScore.invoke(owners[0], "submitTransaction", owners[0].getAddress(), "", "", BigInteger.ZERO, "");
+
+        // the confirmations after the first one should be made with the new slot
+        multisigScore.invoke(owners[1], "confirmTransactions",
+                (Object) new BigInteger[]{BigInteger.ZERO, BigInteger.ONE});
+        verify(multisigSpy).Execution(BigInteger.ZERO);
+        verify(multisigSpy).Execution(BigInteger.ONE);
+        assertEquals(List.of(0, 2, 3), multisigScore.call("getWalletOwnerSlots"));
+        @SuppressWarnings("unchecked")
+        var bits = (List<byte[]>) multisigScore.call("getConfirmationBits", (Object) new BigInteger[]{BigInteger.ONE});
+        assertArrayEquals(new byte[]{0b1001}, bits.get(0));
+    }
+
+    @Test
+    void submitMultiTransaction() {
+        Account alice = sm.createAccount();
+        Account bob = sm.createAccount();
+        Address wallet = multisigScore.getAddress();
+        String format = "[{\"name\": \"_walletOwner\", \"type\": \"Address\", \"value\": \"%s\"}]";
+
+        // add two owners in a single transaction
+        multisigScore.invoke(owners[0], "submitMultiTransaction",
+                new Address[]{wallet, wallet},
+                new String[]{"addWalletOwner", "addWalletOwner"},
+                new String[]{String.format(format, alice.getAddress()), String.format(format, bob.getAddress())},
+                new BigInteger[]{BigInteger.ZERO, BigInteger.ZERO},
+                "add alice and bob");
+        confirmByOwner(owners[1], BigInteger.ZERO);
+        verify(multisigSpy).Execution(BigInteger.ZERO);
+        verify(multisigSpy).WalletOwnerAddition(alice.getAddress());
+        verify(multisigSpy).WalletOwnerAddition(bob.getAddress());
+        @SuppressWarnings("unchecked")
+        var txInfo = (Map<String, String>) multisigScore.call("getTransactionInfo", BigInteger.ZERO);
+        assertEquals("addWalletOwner", txInfo.get("_method"));
+        // the params are rebuilt from the stored ones
+        String rebuilt = "[{\"name\":\"_walletOwner\",\"type\":\"Address\",\"value\":\"%s\"}]";
+        assertEquals(String.format("[{\"destination\":\"%s\",\"method\":\"addWalletOwner\",\"params\":%s,\"value\":\"0x0\"}," +
+                        "{\"destination\":\"%s\",\"method\":\"addWalletOwner\",\"params\":%s,\"value\":\"0x0\"}]",
+                wallet, String.format(rebuilt, alice.getAddress()), wallet, String.format(rebuilt, bob.getAddress())),
+                txInfo.get("_calls"));
+
+        // the calls are reverted altogether if any of them fails
+        Account carol = sm.createAccount();
+        multisigScore.invoke(owners[0], "submitMultiTransaction",
+                new Address[]{wallet, wallet},
+                new String[]{"addWalletOwner", "addWalletOwner"},
+                new String[]{String.format(format, carol.getAddress()), String.format(format, alice.getAddress())},
+                new BigInteger[]{BigInteger.ZERO, BigInteger.ZERO},
+                "");
+        confirmByOwner(owners[1], BigInteger.ONE);
+        verify(multisigSpy).ExecutionFailure(BigInteger.ONE);
+        @SuppressWarnings("unchecked")
+        var walletOwners = (List<Address>) multisigScore.call("getWalletOwners");
+        assertEquals(5, walletOwners.size());
+
+        // executeCalls is only allowed to the wallet itself
+        assertThrows(UserRevertedException.class, () ->
+                multisigScore.invoke(owners[0], "executeCalls", BigInteger.ONE));
+        // the arrays should have the same length
+        assertThrows(UserRevertedException.class, () ->
+                multisigScore.invoke(owners[0], "submitMultiTransaction",
+                        new Address[]{wallet, wallet}, new String[]{"", ""}, new String[]{""},
+                        new BigInteger[]{BigInteger.ZERO, BigInteger.ZERO}, ""));
+    }
+
+    @Test
+    void submitSignedTransaction_invalidSignatures() {
+        byte[] hash = (byte[]) multisigScore.call("getSigningHash",
+                owners[0].getAddress(), "", "", BigInteger.ONE, "");
+        assertEquals(32, hash.length);
+        // the hash should cover the payload
+        byte[] hash2 = (byte[]) multisigScore.call("getSigningHash",
+                owners[0].getAddress(), "", "", BigInteger.TWO, "");
+        assertFalse(Arrays.equals(hash, hash2));
+
+        // signatures should be a multiple of 65 bytes
+        assertThrows(UserRevertedException.class, () ->
+                multisigScore.invoke(owners[0], "submitSignedTransaction",
+                        new byte[64], owners[0].getAddress(), "", "", BigInteger.ONE, ""));
+        // only owners can submit
+        assertThrows(UserRevertedException.class, () ->
+                multisigScore.invoke(sm.createAccount(), "submitSignedTransaction",
+                        new byte[0], owners[0].getAddress(), "", "", BigInteger.ONE, ""));
+        // the sender and the signers cannot jump over the requirement
+        assertThrows(UserRevertedException.class, () ->
+                multisigScore.invoke(owners[0], "submitSignedTransaction",
+                        new byte[130], owners[0].getAddress(), "", "", BigInteger.ONE, ""));
+        assertEquals(BigInteger.ZERO, multisigScore.call("getTransactionCount", true, true));
+
+        // the omitted arguments are the same as the empty ones
+        assertArrayEquals((byte[]) multisigScore.call("getSigningHash", owners[0].getAddress(), "", "", BigInteger.ZERO, ""),
+                (byte[]) multisigScore.call("getSigningHash", owners[0].getAddress(), null, null, null, null));
+    }
+
+    @Test
+    void submitSignedTransaction() throws Exception {
+        KeyWallet[] signers = {KeyWallet.create(), KeyWallet.create()};
+        String initialOwners = owners[0].getAddress() + "," + signers[0].getAddress() + "," + signers[1].getAddress();
+        Score score = sm.deploy(owners[0], MultiSigWallet.class, initialOwners, BigInteger.valueOf(3), null);
+        var spy = (MultiSigWallet) spy(score.getInstance());
+        score.setInstance(spy);
+
+        byte[] hash = (byte[]) score.call("getSigningHash", owners[1].getAddress(), "", "", BigInteger.ZERO, "");
+        byte[] signatures = new byte[130];
+        System.arraycopy(signers[0].sign(hash), 0, signatures, 0, 65);
+        System.arraycopy(signers[1].sign(hash), 0, signatures, 65, 65);
+        // the sender and the two signers reach the requirement in a single call
+        score.invoke(owners[0], "submitSignedTransaction",
+                signatures, owners[1].getAddress(), "", "", BigInteger.ZERO, "");
+        verify(spy).Confirmation(Address.fromString(signers[1].getAddress().toString()), BigInteger.ZERO);
+        verify(spy).Execution(BigInteger.ZERO);
+
+        // the signatures cannot be used again, since the nonce has been increased
+        assertThrows(UserRevertedException.class, () ->
+                score.invoke(owners[0], "submitSignedTransaction",
+                        signatures, owners[1].getAddress(), "", "", BigInteger.ZERO, ""));
+    }
+
     @Test
     void revokeTransaction() {
         // add new wallet owner and confirm first
@@ -235,6 +660,36 @@ class MultiSigWalletTest extends TestBase {
         assertEquals(expected, sortedOwners);
     }
 
+    @Test
+    void getConfirmationBits() {
+        for (int i = 0; i < 2; i++) {
+            multisigScore.invoke(owners[i], "submitTransaction", owners[0].getAddress(), "", "", ICX, "");
+        }
+        multisigScore.invoke(owners[2], "confirmTransaction", BigInteger.ZERO);
+
+        // the owners have the slots of 0, 1 and 2 in order
+        assertEquals(List.of(0, 1, 2), multisigScore.call("getWalletOwnerSlots"));
+        @SuppressWarnings("unchecked")
+        var bits = (List<byte[]>) multisigScore.call("getConfirmationBits",
+                (Object) new BigInteger[]{BigInteger.ZERO, BigInteger.ONE, BigInteger.TEN});
+        assertEquals(3, bits.size());
+        assertArrayEquals(new byte[]{0b101}, bits.get(0));
+        assertArrayEquals(new byte[]{0b010}, bits.get(1));
+        assertArrayEquals(new byte[0], bits.get(2));
+
+        // the slots are mapped back to the owners, even after the owner is removed
+        String params = String.format("[{\"name\": \"_walletOwner\", \"type\": \"Address\", \"value\": \"%s\"}]",
+                owners[2].getAddress());
+        multisigScore.invoke(owners[0], "submitTransaction",
+                multisigScore.getAddress(), "removeWalletOwner", params, BigInteger.ZERO, "");
+        confirmByOwner(owners[1], BigInteger.TWO);
+        verify(multisigSpy).WalletOwnerRemoval(owners[2].getAddress());
+        assertEquals(List.of(owners[2].getAddress(), owners[0].getAddress()),
+                multisigScore.call("getSlotOwners", (Object) new int[]{2, 0}));
+        assertThrows(UserRevertedException.class, () ->
+                multisigScore.call("getSlotOwners", (Object) new int[]{3}));
+    }
+
     @Test
     void getTransactionCount() {
         // submit dummy transactions
@@ -279,6 +734,28 @@ class MultiSigWalletTest extends TestBase {
         assertEquals(txInfo2.get("_executed"), "0x1");
     }
 
+    @Test
+    void getTransactionInfo_bytesParams() {
+        // submit a transaction carrying a bytes param, which is not executed yet
+        String params = "[{\"name\": \"_data\", \"type\": \"bytes\", \"value\": \"0x00ff7F80\"}]";
+        multisigScore.invoke(owners[0], "submitTransaction",
+                owners[1].getAddress(), "dummy", params, BigInteger.valueOf(500), "");
+
+        @SuppressWarnings("unchecked")
+        var txInfo = (Map<String, String>) multisigScore.call("getTransactionInfo", BigInteger.ZERO);
+        assertEquals("0x1f4", txInfo.get("_value"));
+        // the params are rebuilt from the stored ones in the canonical form
+        assertEquals("[{\"name\":\"_data\",\"type\":\"bytes\",\"value\":\"0x00ff7f80\"}]", txInfo.get("_params"));
+
+        // odd-length or non-hex bytes should be rejected
+        for (String value : new String[]{"0x0", "0xzz"}) {
+            String wrong = String.format("[{\"name\": \"_data\", \"type\": \"bytes\", \"value\": \"%s\"}]", value);
+            assertThrows(UserRevertedException.class, () ->
+                    multisigScore.invoke(owners[0], "submitTransaction",
+                            owners[1].getAddress(), "dummy", wrong, BigInteger.ZERO, ""));
+        }
+    }
+
     @Test
     void getTransactionIds() {
         // submit dummy transactions
@@ -305,13 +782,39 @@ class MultiSigWalletTest extends TestBase {
                 new BigInteger[]{BigInteger.ZERO, BigInteger.TWO},
                 txIds2.toArray(new BigInteger[0]));
 
-        // get pending transaction ids
+        // get pending transaction ids (pending ids are not ordered)
         @SuppressWarnings("unchecked")
         var txIds3 = (List<BigInteger>) multisigScore.call("getTransactionIds",
                 BigInteger.valueOf(0), BigInteger.valueOf(count), true, false);
         assertArrayEquals(
                 new BigInteger[]{BigInteger.ONE, BigInteger.valueOf(3), BigInteger.valueOf(4)},
-                txIds3.toArray(new BigInteger[0]));
+                txIds3.stream().sorted().toArray(BigInteger[]::new));
+    }
+
+    @Test
+    void getTransactionIds_pendingPages() {
+        // submit dummy transactions and execute the even ones
+        int count = 10;
+        for (int i = 0; i < count; i++) {
+            multisigScore.invoke(owners[0], "submitTransaction", owners[0].getAddress(), "", "", BigInteger.ZERO, "");
+        }
+        for (int i = 0; i < count; i += 2) {
+            multisigScore.invoke(owners[1], "confirmTransaction", BigInteger.valueOf(i));
+        }
+
+        // pending pages should be dense
+        var received = new ArrayList<BigInteger>();
+        for (int offset = 0; offset < count / 2; offset += 2) {
+            @SuppressWarnings("unchecked")
+            var page = (List<BigInteger>) multisigScore.call("getTransactionIds",
+                    BigInteger.valueOf(offset), BigInteger.TWO, true, false);
+            assertEquals(Math.min(2, count / 2 - offset), page.size());
+            received.addAll(page);
+        }
+        assertEquals("1,3,5,7,9", received.stream()
+                .sorted()
+                .map(BigInteger::toString)
+                .collect(Collectors.joining(",")));
     }
 
     @Test
@@ -335,16 +838,118 @@ class MultiSigWalletTest extends TestBase {
                 .collect(Collectors.joining(","));
         assertEquals("0x1,0x2", received);
 
-        // get pending transaction list
+        // get pending transaction list (pending transactions are not ordered)
         @SuppressWarnings("unchecked")
         var txList2 = (List<Map<String, String>>) multisigScore.call("getTransactionList",
                 BigInteger.valueOf(0), BigInteger.valueOf(count), true, false);
         received = txList2.stream()
                 .map((tx) -> tx.get("_transactionId"))
+                .sorted()
                 .collect(Collectors.joining(","));
         assertEquals("0x0,0x3,0x4", received);
     }
 
+    @Test
+    void getTransactionPage() {
+        // submit dummy transactions and execute two of them
+        int count = 5;
+        for (int i = 0; i < count; i++) {
+            multisigScore.invoke(owners[0], "submitTransaction", owners[0].getAddress(), "", "", BigInteger.ZERO, "");
+        }
+        multisigScore.invoke(owners[1], "confirmTransaction", BigInteger.ONE);
+        multisigScore.invoke(owners[1], "confirmTransaction", BigInteger.TWO);
+
+        // stream through all transactions
+        var received = new ArrayList<String>();
+        BigInteger cursor = null;
+        do {
+            @SuppressWarnings("unchecked")
+            var page = (Map<String, Object>) multisigScore.call("getTransactionPage", cursor, 2, true, true);
+            @SuppressWarnings("unchecked")
+            var txList = (List<Map<String, String>>) page.get("_transactions");
+            txList.forEach((tx) -> received.add(tx.get("_transactionId")));
+            var next = (String) page.get("_next");
+            cursor = (next == null) ? null : new BigInteger(next.substring(2), 16);
+        } while (cursor != null);
+        assertEquals("0x0,0x1,0x2,0x3,0x4", String.join(",", received));
+
+        // executed transactions are returned in the order of execution
+        @SuppressWarnings("unchecked")
+        var page = (Map<String, Object>) multisigScore.call("getTransactionPage", null, count, false, true);
+        @SuppressWarnings("unchecked")
+        var txList = (List<Map<String, String>>) page.get("_transactions");
+        assertEquals("0x1,0x2", txList.stream()
+                .map((tx) -> tx.get("_transactionId"))
+                .collect(Collectors.joining(",")));
+        assertEquals(null, page.get("_next"));
+
+        // a cursor past the end, even beyond the range of long, returns an empty page
+        @SuppressWarnings("unchecked")
+        var last = (Map<String, Object>) multisigScore.call("getTransactionPage",
+                BigInteger.ONE.shiftLeft(64), 2, true, true);
+        assertEquals(0, ((List<?>) last.get("_transactions")).size());
+        assertEquals(null, last.get("_next"));
+    }
+
+    @Test
+    void pruneTransactions() {
+        // submit dummy transactions, and execute the first one only
+        for (int i = 0; i < 2; i++) {
+            multisigScore.invoke(owners[0], "submitTransaction", owners[0].getAddress(), "", "", BigInteger.ZERO, "");
+        }
+        confirmByOwner(owners[1], BigInteger.ZERO);
+
+        // prune the transactions before the pruning transaction itself
+        String params = "[{\"name\": \"_before\", \"type\": \"int\", \"value\": \"0x2\"}]";
+        multisigScore.invoke(owners[0], "submitTransaction",
+                multisigScore.getAddress(), "pruneTransactions", params, BigInteger.ZERO, "");
+        confirmByOwner(owners[1], BigInteger.TWO);
+        verify(multisigSpy).Execution(BigInteger.TWO);
+
+        assertEquals(Map.of("_executed", "0x1", "_expired", "0x0", "_pruned", "0x1", "_transactionId", "0x0"),
+                multisigScore.call("getTransactionInfo", BigInteger.ZERO));
+        assertEquals(0, getConfirmationCount(BigInteger.ZERO));
+        @SuppressWarnings("unchecked")
+        var pending = (Map<String, String>) multisigScore.call("getTransactionInfo", BigInteger.ONE);
+        assertEquals("0x0", pending.get("_executed"));
+        // the cursor stops at the pending one
+        @SuppressWarnings("unchecked")
+        var state = (Map<String, Object>) multisigScore.call("getPruningState");
+        assertEquals("0x1", state.get("_cursor"));
+        assertEquals(32, ((byte[]) state.get("_hash")).length);
+
+        // the counters and the lists still cover the pruned transactions
+        assertEquals(BigInteger.TWO, multisigScore.call("getTransactionCount", false, true));
+        @SuppressWarnings("unchecked")
+        var executed = (List<Map<String, String>>) multisigScore.call("getTransactionList",
+                BigInteger.ZERO, BigInteger.TEN, false, true);
+        assertEquals(2, executed.size());
+        // pruned transactions cannot be confirmed any more
+        assertThrows(UserRevertedException.class, () ->
+                multisigScore.invoke(owners[2], "confirmTransaction", BigInteger.ZERO));
+        // only the wallet can prune
+        assertThrows(UserRevertedException.class, () ->
+                multisigScore.invoke(owners[0], "pruneTransactions", BigInteger.TEN));
+
+        // the pending one is pruned once executed, and the expired one as well
+        confirmByOwner(owners[1], BigInteger.ONE);
+        BigInteger expiry = BigInteger.valueOf(sm.getBlock().getHeight() + 10);
+        multisigScore.invoke(owners[0], "submitTransactionWithExpiry", expiry, owners[0].getAddress(), "", "", BigInteger.ZERO, "");
+        sm.getBlock().increase(20);
+        params = "[{\"name\": \"_before\", \"type\": \"int\", \"value\": \"0x4\"}]";
+        multisigScore.invoke(owners[0], "submitTransaction",
+                multisigScore.getAddress(), "pruneTransactions", params, BigInteger.ZERO, "");
+        confirmByOwner(owners[1], BigInteger.valueOf(4));
+        verify(multisigSpy).Execution(BigInteger.valueOf(4));
+        assertEquals("0x1", ((Map<?, ?>) multisigScore.call("getTransactionInfo", BigInteger.ONE)).get("_pruned"));
+        assertEquals(Map.of("_executed", "0x0", "_expired", "0x1", "_pruned", "0x1", "_transactionId", "0x3"),
+                multisigScore.call("getTransactionInfo", BigInteger.valueOf(3)));
+        @SuppressWarnings("unchecked")
+        var next = (Map<String, Object>) multisigScore.call("getPruningState");
+        assertEquals("0x4", next.get("_cursor"));
+        assertFalse(Arrays.equals((byte[]) state.get("_hash"), (byte[]) next.get("_hash")));
+    }
+
     @Test
     void getConvertedParams_wrongFormat() {
         String[] wrongFormats = {
@@ -356,17 +961,14 @@ class MultiSigWalletTest extends TestBase {
                 "[{\"name\": \"_walletOwner\", \"value\": \"%s\"}]",
                 "[{\"type\": \"_walletOwner\", \"type\": \"Address\", \"value\": \"%s\"}]",
         };
-        BigInteger txId = BigInteger.ZERO;
         for (String format : wrongFormats) {
             String params = String.format(format, sm.createAccount().getAddress());
             System.out.println(">>> params=" + params);
-            multisigScore.invoke(owners[0], "submitTransaction",
-                    multisigScore.getAddress(), "addWalletOwner", params, BigInteger.ZERO, "");
-            confirmByOwner(owners[1], txId);
-
-            verify(multisigSpy).ExecutionFailure(txId);
-            reset(multisigSpy);
-            txId = txId.add(BigInteger.ONE);
+            // the params are converted at submission, so wrong ones should be rejected right away
+            assertThrows(UserRevertedException.class, () ->
+                    multisigScore.invoke(owners[0], "submitTransaction",
+                            multisigScore.getAddress(), "addWalletOwner", params, BigInteger.ZERO, ""));
         }
+        assertEquals(BigInteger.ZERO, multisigScore.call("getTransactionCount", true, true));
     }
 }
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2020 ICONLOOP Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iconloop.score.example;
+
+import com.eclipsesource.json.Json;
+import com.eclipsesource.json.JsonArray;
+import com.eclipsesource.json.JsonObject;
+import com.eclipsesource.json.JsonValue;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import score.Address;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class ParamsParserTest {
+    private static final int ITERATIONS = 2000;
+
+    // the previous minimal-json based conversion, kept as the reference
+    private static Object[] parseWithMinimalJson(String params) {
+        JsonValue json = Json.parse(params);
+        if (!json.isArray()) {
+            throw new IllegalArgumentException("Not json array");
+        }
+        JsonArray array = json.asArray();
+        Object[] ret = new Object[array.size()];
+        int i = 0;
+        for (JsonValue item : array) {
+            JsonObject member = item.asObject();
+            if (member.size() != 3) {
+                throw new IllegalArgumentException("Invalid member size");
+            }
+            String name = member.getString("name", null);
+            String type = member.getString("type", null);
+            String value = member.getString("value", null);
+            if (name != null && type != null && value != null) {
+                ret[i++] = ParamsParser.convert(type, value);
+            } else {
+                throw new IllegalArgumentException("Incomplete params");
+            }
+        }
+        return ret;
+    }
+
+    private static String makeParams(int count) {
+        String[][] samples = {
+                {"Address", "hxe5679f118e093657b71967b0dfddb4d00cbd80b4"},
+                {"str", "hello \\\"world\\\"\\n"},
+                {"int", "0x3e8"},
+                {"bool", "true"},
+                {"bytes", "0x0123456789abcdef0123456789abcdef"},
+        };
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < count; i++) {
+            String[] sample = samples[i % samples.length];
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(String.format("{\"name\": \"_p%d\", \"type\": \"%s\", \"value\": \"%s\"}", i, sample[0], sample[1]));
+        }
+        return sb.append("]").toString();
+    }
+
+    @Test
+    void parse_sameAsMinimalJson() {
+        for (int count : new int[]{0, 1, 10, 100}) {
+            String params = makeParams(count);
+            Object[] expected = parseWithMinimalJson(params);
+            Object[] actual = ParamsParser.parse(params);
+            assertArrayEquals(expected, actual);
+        }
+    }
+
+    @Test
+    void parse_names() {
+        ParamsParser parser = new ParamsParser(makeParams(10));
+        assertEquals(10, parser.parseArray().length);
+        String[] names = parser.names();
+        assertEquals(10, names.length);
+        for (int i = 0; i < names.length; i++) {
+            assertEquals("_p" + i, names[i]);
+        }
+    }
+
+    @Test
+    void parse_negativeInt() {
+        for (String value : new String[]{"-0x1f", "0x-1f", "-31"}) {
+            String params = String.format("[{\"name\": \"_p\", \"type\": \"int\", \"value\": \"%s\"}]", value);
+            assertArrayEquals(new Object[]{BigInteger.valueOf(-31)}, ParamsParser.parse(params));
+        }
+    }
+
+    @Test
+    void params_roundTrip() {
+        String params = makeParams(10).replace("0x3e8", "-0x3e8");
+        Call call = new Call(Address.fromString("cx0000000000000000000000000000000000000001"), "m", params, null);
+        // the params rebuilt by the call can be parsed again into the same arguments
+        String rebuilt = call.params();
+        assertArrayEquals(ParamsParser.parse(params), ParamsParser.parse(rebuilt));
+        assertEquals(rebuilt, new Call(call.destination(), "m", rebuilt, null).params());
+    }
+
+    @Test
+    void parse_wrongFormat() {
+        String[] wrongFormats = {
+                "{\"name\": \"_p\", \"type\": \"str\", \"value\": \"v\"}",
+                "[{\"name\": \"_p\", \"type\": \"str\", \"value\": \"v\"}",
+                "[{\"name\": \"_p\", \"type\": \"str\", \"value\": \"v\"},]",
+                "[{\"name\": \"_p\", \"type\": \"str\", \"value\": 1}]",
+                "[{\"name\": \"_p\", \"type\": \"str\", \"value\": \"v\", \"extra\": \"x\"}]",
+                "[{\"name\": \"_p\", \"type\": \"str\", \"value\": \"v\"}] trailing",
+                "[{\"name\": \"_p\", \"type\": \"str\", \"value\": \"\\x\"}]",
+        };
+        for (String params : wrongFormats) {
+            assertThrows(IllegalArgumentException.class, () -> ParamsParser.parse(params));
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    void benchmark() {
+        var mxBean = ManagementFactory.getThreadMXBean();
+        assumeTrue(mxBean instanceof com.sun.management.ThreadMXBean);
+        var bean = (com.sun.management.ThreadMXBean) mxBean;
+        assumeTrue(bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled());
+        for (int count : new int[]{1, 10, 100}) {
+            String params = makeParams(count);
+            long[] json = measure(bean, ParamsParserTest::parseWithMinimalJson, params);
+            long[] streaming = measure(bean, ParamsParser::parse, params);
+            System.out.printf(">>> %3d params: minimal-json %7d ns %8d bytes, streaming %7d ns %8d bytes%n",
+                    count, json[0], json[1], streaming[0], streaming[1]);
+            // only the allocation is checked, since the elapsed time depends on the machine
+            assertTrue(streaming[1] < json[1], "allocated bytes with " + count + " params");
+        }
+    }
+
+    // returns the average elapsed time and allocated bytes per parse
+    private static long[] measure(com.sun.management.ThreadMXBean bean, Function<String, Object[]> parser,
+                                  String params) {
+        long threadId = Thread.currentThread().getId();
+        for (int i = 0; i < ITERATIONS; i++) {
+            parser.apply(params);
+        }
+        long bytes = bean.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            parser.apply(params);
+        }
+        long elapsed = System.nanoTime() - start;
+        bytes = bean.getThreadAllocatedBytes(threadId) - bytes;
+        return new long[]{elapsed / ITERATIONS, bytes / ITERATIONS};
+    }
+}
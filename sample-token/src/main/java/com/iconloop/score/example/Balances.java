@@ -0,0 +1,92 @@
+/*
+ * Copyright 2020 ICONLOOP Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iconloop.score.example;
+
+import score.Address;
+import score.DictDB;
+import scorex.util.ArrayList;
+import scorex.util.HashMap;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Overlay of the balances for a single invocation.
+ * Each balance is read from the storage at most once, and written back once by {@link #flush()}
+ * only if it has been changed, recording the previous balance in the checkpoints
+ * and updating the holders as the balance becomes zero or non-zero.
+ */
+class Balances {
+    private static class Entry {
+        final BigInteger stored;
+        BigInteger value;
+
+        Entry(BigInteger stored) {
+            this.stored = stored;
+            this.value = stored;
+        }
+    }
+
+    private final DictDB<Address, BigInteger> balances;
+    private final Checkpoints<Address> checkpoints;
+    private final Holders holders;
+    private final Map<Address, Entry> entries = new HashMap<>();
+    private final List<Address> order = new ArrayList<>();
+
+    Balances(DictDB<Address, BigInteger> balances, Checkpoints<Address> checkpoints, Holders holders) {
+        this.balances = balances;
+        this.checkpoints = checkpoints;
+        this.holders = holders;
+    }
+
+    private Entry entry(Address owner) {
+        Entry e = entries.get(owner);
+        if (e == null) {
+            e = new Entry(balances.getOrDefault(owner, BigInteger.ZERO));
+            entries.put(owner, e);
+            order.add(owner);
+        }
+        return e;
+    }
+
+    BigInteger get(Address owner) {
+        return entry(owner).value;
+    }
+
+    void set(Address owner, BigInteger amount) {
+        entry(owner).value = amount;
+    }
+
+    // must be called before any external call, which may read the balances again
+    void flush() {
+        for (Address owner : order) {
+            Entry e = entries.get(owner);
+            if (!e.value.equals(e.stored)) {
+                checkpoints.record(owner, e.stored);
+                balances.set(owner, e.value);
+                if (e.stored.signum() == 0) {
+                    holders.add(owner);
+                } else if (e.value.signum() == 0) {
+                    holders.remove(owner);
+                }
+            }
+        }
+        entries.clear();
+        order.clear();
+    }
+}
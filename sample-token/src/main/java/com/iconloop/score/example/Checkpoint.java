@@ -0,0 +1,58 @@
+/*
+ * Copyright 2020 ICONLOOP Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iconloop.score.example;
+
+import score.ObjectReader;
+import score.ObjectWriter;
+
+import java.math.BigInteger;
+
+/**
+ * A value which was held until the given block height, excluding the changes made at the height.
+ */
+public class Checkpoint {
+    private final long height;
+    private final BigInteger value;
+
+    public Checkpoint(long height, BigInteger value) {
+        this.height = height;
+        this.value = value;
+    }
+
+    public long height() {
+        return height;
+    }
+
+    public BigInteger value() {
+        return value;
+    }
+
+    public static void writeObject(ObjectWriter w, Checkpoint c) {
+        w.beginList(2);
+        w.write(c.height);
+        w.write(c.value);
+        w.end();
+    }
+
+    public static Checkpoint readObject(ObjectReader r) {
+        r.beginList();
+        long height = r.readLong();
+        BigInteger value = r.readBigInteger();
+        r.end();
+        return new Checkpoint(height, value);
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2020 ICONLOOP Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iconloop.score.example;
+
+import score.BranchDB;
+import score.Context;
+import score.DictDB;
+
+import java.math.BigInteger;
+
+/**
+ * Past values of each key, recorded on the first change in each block.
+ * A checkpoint keeps the value before the change, so the value at the end of a block is
+ * the one of the first checkpoint after the block, or the current value if there is none.
+ */
+class Checkpoints<K> {
+    private final BranchDB<K, DictDB<Integer, Checkpoint>> checkpoints;
+    private final DictDB<K, Integer> counts;
+
+    Checkpoints(String id) {
+        this.checkpoints = Context.newBranchDB(id, Checkpoint.class);
+        this.counts = Context.newDictDB(id + "Count", Integer.class);
+    }
+
+    // must be called before the value of the key is changed
+    void record(K key, BigInteger value) {
+        long height = Context.getBlockHeight();
+        int count = counts.getOrDefault(key, 0);
+        DictDB<Integer, Checkpoint> list = checkpoints.at(key);
+        if (count > 0 && list.get(count - 1).height() == height) {
+            return;
+        }
+        list.set(count, new Checkpoint(height, value));
+        counts.set(key, count + 1);
+    }
+
+    BigInteger valueAt(K key, long height, BigInteger current) {
+        DictDB<Integer, Checkpoint> list = checkpoints.at(key);
+        // find the first checkpoint recorded after the height
+        int low = 0;
+        int high = counts.getOrDefault(key, 0);
+        Checkpoint found = null;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            Checkpoint c = list.get(mid);
+            if (c.height() > height) {
+                found = c;
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return found != null ? found.value() : current;
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2020 ICONLOOP Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iconloop.score.example;
+
+import score.Address;
+import score.ArrayDB;
+import score.Context;
+import score.DictDB;
+
+/**
+ * Set of the accounts holding a non-zero balance.
+ * Removal swaps the last holder into the removed position, so the order is not preserved.
+ */
+class Holders {
+    private final ArrayDB<Address> holders = Context.newArrayDB("holders", Address.class);
+    // position of each holder plus one, so that zero means not a holder
+    private final DictDB<Address, Integer> positions = Context.newDictDB("holderPositions", Integer.class);
+
+    int size() {
+        return holders.size();
+    }
+
+    Address get(int index) {
+        return holders.get(index);
+    }
+
+    void add(Address owner) {
+        holders.add(owner);
+        positions.set(owner, holders.size());
+    }
+
+    void remove(Address owner) {
+        int position = positions.getOrDefault(owner, 0);
+        if (position == 0) {
+            return;
+        }
+        Address last = holders.pop();
+        if (!last.equals(owner)) {
+            holders.set(position - 1, last);
+            positions.set(last, position);
+        }
+        positions.set(owner, null);
+    }
+}
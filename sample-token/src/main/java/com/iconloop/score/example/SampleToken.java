@@ -17,6 +17,8 @@
 package com.iconloop.score.example;
 
 import score.Address;
+import score.BranchDB;
+import score.ByteArrayObjectWriter;
 import score.Context;
 import score.DictDB;
 import score.VarDB;
@@ -25,14 +27,28 @@ import score.annotation.External;
 import score.annotation.Optional;
 
 import java.math.BigInteger;
+import java.util.List;
 
 public class SampleToken
 {
+    // key of the total supply in its checkpoints
+    private static final String TOTAL_SUPPLY = "";
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int HASH_LENGTH = 32;
+    private static final int MAX_PROOF_DEPTH = 32;
+    private static final int WORD_BITS = 256;
+
     private final String name;
     private final String symbol;
     private final int decimals;
     private final VarDB<BigInteger> totalSupply = Context.newVarDB("totalSupply", BigInteger.class);
     private final DictDB<Address, BigInteger> balances = Context.newDictDB("balances", BigInteger.class);
+    private final Checkpoints<Address> balanceCheckpoints = new Checkpoints<>("balanceCheckpoints");
+    private final Checkpoints<String> totalSupplyCheckpoints = new Checkpoints<>("totalSupplyCheckpoints");
+    private final Holders holders = new Holders();
+    private final VarDB<byte[]> merkleRoot = Context.newVarDB("merkleRoot", byte[].class);
+    // claimed bitmap of each root, split into words of 256 leaves
+    private final BranchDB<byte[], DictDB<Integer, byte[]>> claimed = Context.newBranchDB("claimed", byte[].class);
 
     public SampleToken(String _name, String _symbol, BigInteger _decimals, BigInteger _initialSupply) {
         this.name = _name;
@@ -56,8 +72,11 @@ public class SampleToken
         }
 
         // set the total supply and initial balance of the owner
+        this.totalSupplyCheckpoints.record(TOTAL_SUPPLY, BigInteger.ZERO);
         this.totalSupply.set(_totalSupply);
-        this.balances.set(Context.getCaller(), _totalSupply);
+        Balances cache = newBalances();
+        cache.set(Context.getCaller(), _totalSupply);
+        cache.flush();
     }
 
     // BigInteger#pow() is not implemented in the shadow BigInteger.
@@ -95,17 +114,167 @@ public class SampleToken
         return safeGetBalance(_owner);
     }
 
+    @External(readonly=true)
+    public BigInteger totalSupplyAt(BigInteger _height) {
+        Context.require(_height.signum() >= 0);
+        return totalSupplyCheckpoints.valueAt(TOTAL_SUPPLY, _height.longValue(), totalSupply());
+    }
+
+    @External(readonly=true)
+    public BigInteger balanceOfAt(Address _owner, BigInteger _height) {
+        Context.require(_height.signum() >= 0);
+        return balanceCheckpoints.valueAt(_owner, _height.longValue(), safeGetBalance(_owner));
+    }
+
+    @External(readonly=true)
+    public int holderCount() {
+        return holders.size();
+    }
+
+    /**
+     * Returns the holders in the range of [_offset, _offset + _count), up to 100 at once.
+     * The order changes as holders are removed.
+     */
+    @External(readonly=true)
+    public List<Address> holders(BigInteger _offset, BigInteger _count) {
+        Context.require(_offset.signum() >= 0 && _count.signum() >= 0);
+        Context.require(_count.compareTo(BigInteger.valueOf(MAX_PAGE_SIZE)) <= 0);
+        BigInteger size = BigInteger.valueOf(holders.size());
+        if (_offset.compareTo(size) >= 0) {
+            return List.of();
+        }
+        int offset = _offset.intValue();
+        int count = Math.min(_count.intValue(), size.intValue() - offset);
+        Address[] entries = new Address[count];
+        for (int i = 0; i < count; i++) {
+            entries[i] = holders.get(offset + i);
+        }
+        return List.of(entries);
+    }
+
+    /**
+     * Publishes the Merkle root of a distribution, which replaces the previous one.
+     * Each leaf is the SHA3-256 hash of the RLP-encoded list of the index, the account and the amount,
+     * and each node is the SHA3-256 hash of its two children in ascending byte order.
+     * Claims are paid from the balance of the owner, and are kept per root.
+     */
+    @External
+    public void setMerkleRoot(byte[] _root) {
+        Context.require(Context.getCaller().equals(Context.getOwner()));
+        Context.require(_root != null && _root.length == HASH_LENGTH);
+        merkleRoot.set(_root);
+    }
+
+    @External(readonly=true)
+    public byte[] getMerkleRoot() {
+        return merkleRoot.get();
+    }
+
+    @External(readonly=true)
+    public byte[] getClaimHash(BigInteger _index, Address _account, BigInteger _amount) {
+        ByteArrayObjectWriter w = Context.newByteArrayObjectWriter("RLPn");
+        w.beginList(3);
+        w.write(_index);
+        w.write(_account);
+        w.write(_amount);
+        w.end();
+        return Context.hash("sha3-256", w.toByteArray());
+    }
+
+    @External(readonly=true)
+    public boolean isClaimed(BigInteger _index) {
+        byte[] root = merkleRoot.get();
+        if (root == null || _index.signum() < 0 || _index.bitLength() >= 32) {
+            return false;
+        }
+        return isClaimed(root, _index.intValue());
+    }
+
+    private boolean isClaimed(byte[] root, int index) {
+        byte[] word = claimed.at(root).get(index / WORD_BITS);
+        int bit = index % WORD_BITS;
+        return word != null && (word[bit / 8] & (1 << (bit % 8))) != 0;
+    }
+
+    /**
+     * Claims the amount of the leaf at the index for the caller, with the sibling hashes
+     * from the leaf up to the root concatenated in the proof.
+     */
+    @External
+    public void claim(BigInteger _index, BigInteger _amount, byte[] _proof) {
+        byte[] root = merkleRoot.get();
+        Context.require(root != null);
+        Context.require(_index.signum() >= 0 && _index.bitLength() < 32);
+        Context.require(_amount.signum() > 0);
+        Context.require(_proof.length % HASH_LENGTH == 0 && _proof.length <= MAX_PROOF_DEPTH * HASH_LENGTH);
+        int index = _index.intValue();
+        Context.require(!isClaimed(root, index));
+
+        // verify the proof against the root
+        Address account = Context.getCaller();
+        byte[] node = getClaimHash(_index, account, _amount);
+        byte[] pair = new byte[HASH_LENGTH * 2];
+        for (int i = 0; i < _proof.length; i += HASH_LENGTH) {
+            if (compare(node, 0, _proof, i) <= 0) {
+                System.arraycopy(node, 0, pair, 0, HASH_LENGTH);
+                System.arraycopy(_proof, i, pair, HASH_LENGTH, HASH_LENGTH);
+            } else {
+                System.arraycopy(_proof, i, pair, 0, HASH_LENGTH);
+                System.arraycopy(node, 0, pair, HASH_LENGTH, HASH_LENGTH);
+            }
+            node = Context.hash("sha3-256", pair);
+        }
+        Context.require(compare(node, 0, root, 0) == 0);
+
+        // mark the leaf as claimed
+        DictDB<Integer, byte[]> words = claimed.at(root);
+        byte[] word = words.get(index / WORD_BITS);
+        if (word == null) {
+            word = new byte[WORD_BITS / 8];
+        }
+        int bit = index % WORD_BITS;
+        word[bit / 8] |= (byte) (1 << (bit % 8));
+        words.set(index / WORD_BITS, word);
+
+        // pay the amount from the balance of the owner
+        Address owner = Context.getOwner();
+        Balances cache = newBalances();
+        Context.require(cache.get(owner).compareTo(_amount) >= 0);
+        cache.set(owner, cache.get(owner).subtract(_amount));
+        cache.set(account, cache.get(account).add(_amount));
+        cache.flush();
+
+        byte[] dataBytes = "claim".getBytes();
+        if (account.isContract()) {
+            Context.call(account, "tokenFallback", owner, _amount, dataBytes);
+        }
+        Transfer(owner, account, _amount, dataBytes);
+    }
+
+    // compares the hashes at the offsets in unsigned byte order
+    private static int compare(byte[] a, int aOffset, byte[] b, int bOffset) {
+        for (int i = 0; i < HASH_LENGTH; i++) {
+            int d = (a[aOffset + i] & 0xff) - (b[bOffset + i] & 0xff);
+            if (d != 0) {
+                return d;
+            }
+        }
+        return 0;
+    }
+
     @External
     public void transfer(Address _to, BigInteger _value, @Optional byte[] _data) {
         Address _from = Context.getCaller();
 
         // check some basic requirements
+        Balances cache = newBalances();
         Context.require(_value.compareTo(BigInteger.ZERO) >= 0);
-        Context.require(safeGetBalance(_from).compareTo(_value) >= 0);
+        Context.require(cache.get(_from).compareTo(_value) >= 0);
 
         // adjust the balances
-        safeSetBalance(_from, safeGetBalance(_from).subtract(_value));
-        safeSetBalance(_to, safeGetBalance(_to).add(_value));
+        cache.set(_from, cache.get(_from).subtract(_value));
+        cache.set(_to, cache.get(_to).add(_value));
+        cache.flush();
 
         // if the recipient is SCORE, call 'tokenFallback' to handle further operation
         byte[] dataBytes = (_data == null) ? new byte[0] : _data;
@@ -117,12 +286,44 @@ public class SampleToken
         Transfer(_from, _to, _value, dataBytes);
     }
 
-    private BigInteger safeGetBalance(Address owner) {
-        return balances.getOrDefault(owner, BigInteger.ZERO);
+    @External
+    public void transferBatch(Address[] _to, BigInteger[] _values, @Optional byte[] _data) {
+        Address _from = Context.getCaller();
+
+        // check some basic requirements, and sum up the values against the balance at once
+        Context.require(_to.length == _values.length);
+        BigInteger total = BigInteger.ZERO;
+        for (BigInteger value : _values) {
+            Context.require(value.compareTo(BigInteger.ZERO) >= 0);
+            total = total.add(value);
+        }
+        Balances cache = newBalances();
+        Context.require(cache.get(_from).compareTo(total) >= 0);
+
+        // adjust the balances, each of which is written once even if it appears several times
+        cache.set(_from, cache.get(_from).subtract(total));
+        for (int i = 0; i < _to.length; i++) {
+            cache.set(_to[i], cache.get(_to[i]).add(_values[i]));
+        }
+        cache.flush();
+
+        byte[] dataBytes = (_data == null) ? new byte[0] : _data;
+        for (int i = 0; i < _to.length; i++) {
+            // if the recipient is SCORE, call 'tokenFallback' to handle further operation
+            if (_to[i].isContract()) {
+                Context.call(_to[i], "tokenFallback", _from, _values[i], dataBytes);
+            }
+            // emit Transfer event
+            Transfer(_from, _to[i], _values[i], dataBytes);
+        }
     }
 
-    private void safeSetBalance(Address owner, BigInteger amount) {
-        balances.set(owner, amount);
+    private Balances newBalances() {
+        return new Balances(balances, balanceCheckpoints, holders);
+    }
+
+    private BigInteger safeGetBalance(Address owner) {
+        return balances.getOrDefault(owner, BigInteger.ZERO);
     }
 
     @EventLog(indexed=3)
@@ -22,11 +22,21 @@ import com.iconloop.score.test.ServiceManager;
 import com.iconloop.score.test.TestBase;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import score.Address;
+import score.Context;
+import score.UserRevertedException;
+import score.annotation.External;
 
 import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.List;
 
 import static java.math.BigInteger.TEN;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class SampleTokenTest extends TestBase {
     private static final String name = "MySampleToken";
@@ -40,6 +50,23 @@ class SampleTokenTest extends TestBase {
 
     private static Score tokenScore;
 
+    // reads the balances back from the token while receiving it
+    public static class TokenReceiver {
+        private final Address token;
+        BigInteger balance;
+        BigInteger senderBalance;
+
+        public TokenReceiver(Address _token) {
+            this.token = _token;
+        }
+
+        @External
+        public void tokenFallback(Address _from, BigInteger _value, byte[] _data) {
+            this.balance = (BigInteger) Context.call(this.token, "balanceOf", Context.getAddress());
+            this.senderBalance = (BigInteger) Context.call(this.token, "balanceOf", _from);
+        }
+    }
+
     @BeforeAll
     public static void setup() throws Exception {
         tokenScore = sm.deploy(owner, SampleToken.class,
@@ -88,4 +115,178 @@ class SampleTokenTest extends TestBase {
         tokenScore.invoke(alice, "transfer", alice.getAddress(), value, "self transfer".getBytes());
         assertEquals(value, tokenScore.call("balanceOf", alice.getAddress()));
     }
+
+    @Test
+    void transfer_self() {
+        Account judy = sm.createAccount();
+        BigInteger value = TEN.pow(decimals);
+        tokenScore.invoke(owner, "transfer", judy.getAddress(), value, "to judy".getBytes());
+        owner.subtractBalance(symbol, value);
+        int count = (int) tokenScore.call("holderCount");
+
+        // sending the whole balance to itself leaves it as it is
+        tokenScore.invoke(judy, "transfer", judy.getAddress(), value, "self transfer".getBytes());
+        assertEquals(value, tokenScore.call("balanceOf", judy.getAddress()));
+        assertEquals(count, tokenScore.call("holderCount"));
+        assertTrue(getHolders().contains(judy.getAddress()));
+    }
+
+    @Test
+    void transfer_tokenFallback() throws Exception {
+        Score receiver = sm.deploy(owner, TokenReceiver.class, tokenScore.getAddress());
+        BigInteger value = TEN.pow(decimals);
+        tokenScore.invoke(owner, "transfer", receiver.getAddress(), value, "to receiver".getBytes());
+        owner.subtractBalance(symbol, value);
+
+        // the balances are written back before the recipient is called
+        TokenReceiver instance = (TokenReceiver) receiver.getInstance();
+        assertEquals(value, instance.balance);
+        assertEquals(owner.getBalance(symbol), instance.senderBalance);
+
+        // the same for every recipient of a batch, which sees the final balances
+        Address[] to = {receiver.getAddress(), receiver.getAddress()};
+        tokenScore.invoke(owner, "transferBatch", to, new BigInteger[]{value, value}, "batch".getBytes());
+        owner.subtractBalance(symbol, value.multiply(BigInteger.TWO));
+        assertEquals(value.multiply(BigInteger.valueOf(3)), instance.balance);
+        assertEquals(owner.getBalance(symbol), instance.senderBalance);
+    }
+
+    @Test
+    void transferBatch_repeatedRecipients() {
+        Account henry = sm.createAccount();
+        Account ivy = sm.createAccount();
+        BigInteger value = TEN.pow(decimals);
+        Address[] to = {henry.getAddress(), ivy.getAddress(), henry.getAddress(), henry.getAddress()};
+        BigInteger[] values = {value, value.multiply(BigInteger.TWO), value.multiply(BigInteger.valueOf(3)),
+                value.multiply(BigInteger.valueOf(4))};
+        tokenScore.invoke(owner, "transferBatch", to, values, "repeated".getBytes());
+        owner.subtractBalance(symbol, value.multiply(TEN));
+        assertEquals(value.multiply(BigInteger.valueOf(8)), tokenScore.call("balanceOf", henry.getAddress()));
+        assertEquals(value.multiply(BigInteger.TWO), tokenScore.call("balanceOf", ivy.getAddress()));
+        assertEquals(owner.getBalance(symbol), tokenScore.call("balanceOf", owner.getAddress()));
+
+        // the sender may be one of the recipients as well
+        Address[] back = {ivy.getAddress(), henry.getAddress(), ivy.getAddress()};
+        BigInteger[] backValues = {value, value.multiply(BigInteger.TWO), value};
+        tokenScore.invoke(henry, "transferBatch", back, backValues, "with sender".getBytes());
+        assertEquals(value.multiply(BigInteger.valueOf(6)), tokenScore.call("balanceOf", henry.getAddress()));
+        assertEquals(value.multiply(BigInteger.valueOf(4)), tokenScore.call("balanceOf", ivy.getAddress()));
+    }
+
+    @Test
+    void transferBatch() {
+        Account bob = sm.createAccount();
+        Account carol = sm.createAccount();
+        BigInteger value = TEN.pow(decimals);
+        Address[] to = {bob.getAddress(), carol.getAddress(), bob.getAddress(), owner.getAddress()};
+        BigInteger[] values = {value, value.multiply(TEN), value, value};
+        tokenScore.invoke(owner, "transferBatch", to, values, "batch".getBytes());
+        owner.subtractBalance(symbol, value.multiply(BigInteger.valueOf(12)));
+        assertEquals(owner.getBalance(symbol),
+                tokenScore.call("balanceOf", owner.getAddress()));
+        assertEquals(value.multiply(BigInteger.TWO),
+                tokenScore.call("balanceOf", bob.getAddress()));
+        assertEquals(value.multiply(TEN),
+                tokenScore.call("balanceOf", carol.getAddress()));
+
+        // the total exceeds the balance, even though each value does not
+        Address[] back = {owner.getAddress(), owner.getAddress()};
+        assertThrows(UserRevertedException.class, () ->
+                tokenScore.invoke(bob, "transferBatch", back, new BigInteger[]{value, value.add(BigInteger.ONE)},
+                        "too much".getBytes()));
+        assertEquals(value.multiply(BigInteger.TWO),
+                tokenScore.call("balanceOf", bob.getAddress()));
+
+        // mismatched lengths
+        assertThrows(UserRevertedException.class, () ->
+                tokenScore.invoke(bob, "transferBatch", back, new BigInteger[]{value}, "mismatch".getBytes()));
+    }
+
+    @Test
+    void balanceOfAt() {
+        Account dave = sm.createAccount();
+        BigInteger value = TEN.pow(decimals);
+        BigInteger before = BigInteger.valueOf(sm.getBlock().getHeight() - 1);
+        tokenScore.invoke(owner, "transfer", dave.getAddress(), value, "to dave".getBytes());
+        owner.subtractBalance(symbol, value);
+        BigInteger first = BigInteger.valueOf(sm.getBlock().getHeight());
+
+        sm.getBlock().increase(10);
+        tokenScore.invoke(owner, "transfer", dave.getAddress(), value, "to dave".getBytes());
+        owner.subtractBalance(symbol, value);
+        BigInteger second = BigInteger.valueOf(sm.getBlock().getHeight());
+
+        assertEquals(BigInteger.ZERO, tokenScore.call("balanceOfAt", dave.getAddress(), before));
+        assertEquals(value, tokenScore.call("balanceOfAt", dave.getAddress(), first));
+        assertEquals(value.multiply(BigInteger.TWO), tokenScore.call("balanceOfAt", dave.getAddress(), second));
+        assertEquals(owner.getBalance(symbol).add(value),
+                tokenScore.call("balanceOfAt", owner.getAddress(), first));
+        assertEquals(totalSupply, tokenScore.call("totalSupplyAt", second));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Address> getHolders() {
+        BigInteger count = BigInteger.valueOf((int) tokenScore.call("holderCount"));
+        return (List<Address>) tokenScore.call("holders", BigInteger.ZERO, count);
+    }
+
+    @Test
+    void holders() {
+        Account erin = sm.createAccount();
+        BigInteger value = TEN.pow(decimals);
+        int count = (int) tokenScore.call("holderCount");
+        assertTrue(getHolders().contains(owner.getAddress()));
+
+        tokenScore.invoke(owner, "transfer", erin.getAddress(), value, "to erin".getBytes());
+        assertEquals(count + 1, tokenScore.call("holderCount"));
+        assertTrue(getHolders().contains(erin.getAddress()));
+
+        // the holder is removed once its balance becomes zero
+        tokenScore.invoke(erin, "transfer", owner.getAddress(), value, "back".getBytes());
+        assertEquals(count, tokenScore.call("holderCount"));
+        assertFalse(getHolders().contains(erin.getAddress()));
+        assertTrue(getHolders().contains(owner.getAddress()));
+    }
+
+    private static byte[] hashPair(byte[] a, byte[] b) throws Exception {
+        if (Arrays.compareUnsigned(a, b) > 0) {
+            return hashPair(b, a);
+        }
+        MessageDigest digest = MessageDigest.getInstance("SHA3-256");
+        digest.update(a);
+        return digest.digest(b);
+    }
+
+    @Test
+    void claim() throws Exception {
+        Account frank = sm.createAccount();
+        Account grace = sm.createAccount();
+        BigInteger value = TEN.pow(decimals);
+        byte[] leaf0 = (byte[]) tokenScore.call("getClaimHash", BigInteger.ZERO, frank.getAddress(), value);
+        byte[] leaf1 = (byte[]) tokenScore.call("getClaimHash", BigInteger.ONE, grace.getAddress(), value.multiply(TEN));
+        byte[] root = hashPair(leaf0, leaf1);
+
+        assertThrows(UserRevertedException.class, () ->
+                tokenScore.invoke(frank, "setMerkleRoot", (Object) root));
+        tokenScore.invoke(owner, "setMerkleRoot", (Object) root);
+
+        // the amount needs to match the leaf
+        assertThrows(UserRevertedException.class, () ->
+                tokenScore.invoke(frank, "claim", BigInteger.ZERO, value.multiply(TEN), leaf1));
+        tokenScore.invoke(frank, "claim", BigInteger.ZERO, value, leaf1);
+        owner.subtractBalance(symbol, value);
+        assertEquals(value, tokenScore.call("balanceOf", frank.getAddress()));
+        assertEquals(owner.getBalance(symbol), tokenScore.call("balanceOf", owner.getAddress()));
+        assertEquals(true, tokenScore.call("isClaimed", BigInteger.ZERO));
+        assertEquals(false, tokenScore.call("isClaimed", BigInteger.ONE));
+
+        // each leaf can be claimed only once
+        assertThrows(UserRevertedException.class, () ->
+                tokenScore.invoke(frank, "claim", BigInteger.ZERO, value, leaf1));
+        assertThrows(UserRevertedException.class, () ->
+                tokenScore.invoke(frank, "claim", BigInteger.ONE, value.multiply(TEN), leaf0));
+        tokenScore.invoke(grace, "claim", BigInteger.ONE, value.multiply(TEN), leaf0);
+        owner.subtractBalance(symbol, value.multiply(TEN));
+        assertEquals(value.multiply(TEN), tokenScore.call("balanceOf", grace.getAddress()));
+    }
 }